@@ -0,0 +1,520 @@
+package piwords;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * AhoCorasick is an immutable automaton that finds a fixed set of needles in
+ * a haystack with a single pass over the haystack, however many needles
+ * there are. Build it once and reuse it for every haystack searched with the
+ * same needles.
+ * 
+ * Needles are identified by their index in the array or CompactDictionary
+ * the automaton was built from.
+ * 
+ * The automaton is a trie of the needles with failure links. Its states are
+ * numbered in breadth-first order with the root as state 0, which puts the
+ * children of every state at consecutive numbers, in increasing order of
+ * their labels. The whole goto function is therefore stored as one int
+ * (the first child) and one char (the label) per state.
+ */
+public class AhoCorasick {
+    private static final int ROOT = 0;
+
+    // exactly one of needles and dictionary is null
+    private final String[] needles;
+    private final CompactDictionary dictionary;
+    private final int numNeedles;
+    // children of state s are firstChild[s] .. firstChild[s+1]-1
+    private final int[] firstChild;
+    // label[s] is the char on the edge into s
+    private final char[] label;
+    // fail[s] is the state for the longest proper suffix of s that is a
+    // prefix of some needle
+    private final int[] fail;
+    // output[s] is the lowest id of a needle spelled by s, or -1
+    private final int[] output;
+    // outputLink[s] is the nearest state other than the root on the failure
+    // chain of s whose output is not -1, or -1
+    private final int[] outputLink;
+    // sameNeedle[id] is the next higher id of a needle equal to needle id, or -1
+    private final int[] sameNeedle;
+    private final int[] needleLength;
+    private final int maxNeedleLength;
+
+    // rep invariant: firstChild is nondecreasing, firstChild[s] > s for
+    //   s > 0, and firstChild[numStates] == numStates; labels of the
+    //   children of a state are strictly increasing; fail[s] < s for s > 0
+
+    /**
+     * Make an automaton that searches for needles.
+     * 
+     * @param needles The strings to search for. This array is not mutated.
+     */
+    public AhoCorasick(String[] needles) {
+        this(needles.clone(), null, sortedTrie(needles));
+    }
+
+    /**
+     * Make an automaton that searches for the words of dictionary, reading
+     * them straight from its packed form. Words are only turned into
+     * Strings when they are returned by needle or findWords.
+     * 
+     * @param dictionary The words to search for, which must stay open while
+     *                   the automaton is in use.
+     */
+    public AhoCorasick(CompactDictionary dictionary) {
+        this(null, dictionary, dictionaryTrie(dictionary));
+    }
+
+    private AhoCorasick(String[] needles, CompactDictionary dictionary,
+                        TrieBuilder trie) {
+        this.needles = needles;
+        this.dictionary = dictionary;
+        this.numNeedles = trie.sameNeedle.length;
+        this.sameNeedle = trie.sameNeedle;
+        this.needleLength = trie.needleLength;
+        this.maxNeedleLength = trie.maxLength;
+
+        int numStates = trie.size();
+        firstChild = new int[numStates + 1];
+        label = new char[numStates];
+        fail = new int[numStates];
+        output = new int[numStates];
+        outputLink = new int[numStates];
+        trie.renumberBreadthFirst(firstChild, label, output);
+        linkFailures();
+    }
+
+    /**
+     * Returns the trie of needles, added in sorted order.
+     */
+    private static TrieBuilder sortedTrie(final String[] needles) {
+        Integer[] order = new Integer[needles.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                int c = needles[a].compareTo(needles[b]);
+                return (c != 0) ? c : a.compareTo(b);
+            }
+        });
+
+        TrieBuilder trie = new TrieBuilder(needles.length);
+        String previous = "";
+        for (Integer id : order) {
+            String needle = needles[id];
+            int shared = 0;
+            while (shared < previous.length() && shared < needle.length()
+                   && previous.charAt(shared) == needle.charAt(shared)) {
+                shared++;
+            }
+            trie.addSorted(id, shared, needle);
+            previous = needle;
+        }
+        return trie;
+    }
+
+    /**
+     * Returns the trie of the words of dictionary, which are stored sorted
+     * along with the prefix each shares with the one before.
+     */
+    private static TrieBuilder dictionaryTrie(CompactDictionary dictionary) {
+        TrieBuilder trie = new TrieBuilder(dictionary.size());
+        CompactDictionary.Cursor cursor = dictionary.cursor();
+        for (int id = 0; cursor.next(); id++) {
+            trie.addSorted(id, cursor.sharedPrefix(), cursor);
+        }
+        return trie;
+    }
+
+    /**
+     * Fill in fail and outputLink, parents before children.
+     */
+    private void linkFailures() {
+        fail[ROOT] = ROOT;
+        outputLink[ROOT] = -1;
+        for (int parent = 0; parent < label.length; parent++) {
+            for (int s = firstChild[parent]; s < firstChild[parent + 1]; s++) {
+                if (parent == ROOT) {
+                    fail[s] = ROOT;
+                } else {
+                    fail[s] = next(fail[parent], label[s]);
+                }
+                int f = fail[s];
+                outputLink[s] = (f != ROOT && output[f] >= 0) ? f : outputLink[f];
+            }
+        }
+    }
+
+    /**
+     * @return the number of needles, including duplicates.
+     */
+    public int size() {
+        return numNeedles;
+    }
+
+    /**
+     * @param id A needle id. Requires 0 <= id < size().
+     * @return the needle with that id.
+     */
+    public String needle(int id) {
+        return (needles != null) ? needles[id] : dictionary.word(id);
+    }
+
+    /**
+     * @return the length of the longest needle, or 0 if there are none.
+     */
+    public int maxNeedleLength() {
+        return maxNeedleLength;
+    }
+
+    /**
+     * A MatchHandler is told about every occurrence found by findAll.
+     */
+    public interface MatchHandler {
+        /**
+         * Called once for each occurrence of needle id at index of the
+         * haystack.
+         */
+        void match(int id, int index);
+    }
+
+    /**
+     * Reports every occurrence of every needle in haystack to handler,
+     * ordered by the index the occurrence ends at, so the occurrences of any
+     * one needle are reported in increasing order of index. The empty
+     * needle, if any, occurs at every index from 0 to haystack.length().
+     * 
+     * @param haystack The string to search into.
+     * @param handler Told about each occurrence.
+     */
+    public void findAll(CharSequence haystack, MatchHandler handler) {
+        findAll(haystack, 0, haystack.length(), handler);
+    }
+
+    /**
+     * Like findAll(CharSequence, MatchHandler), but only reports occurrences
+     * that lie entirely within haystack[start..end). Indices are still
+     * indices of haystack.
+     * 
+     * @param haystack The string to search into.
+     * @param start Index of haystack to start searching at. Requires
+     *              0 <= start <= end.
+     * @param end Index of haystack to stop searching at. Requires
+     *            end <= haystack.length().
+     * @param handler Told about each occurrence.
+     */
+    public void findAll(CharSequence haystack, int start, int end,
+                        MatchHandler handler) {
+        int state = ROOT;
+        for (int i = start; i <= end; i++) {
+            if (output[ROOT] >= 0) {
+                report(output[ROOT], i, handler);
+            }
+            if (i == end) {
+                break;
+            }
+            state = next(state, haystack.charAt(i));
+            int o = (state != ROOT && output[state] >= 0) ? state : outputLink[state];
+            for (; o >= 0; o = outputLink[o]) {
+                int id = output[o];
+                report(id, i - needleLength[id] + 1, handler);
+            }
+        }
+    }
+
+    /**
+     * Returns the lowest index at which each needle occurs in haystack.
+     * 
+     * @param haystack The string to search into.
+     * @return An array indexed by needle id, holding the lowest index of
+     *         haystack at which that needle was found, or -1 if it was not
+     *         found.
+     */
+    public int[] firstOccurrences(CharSequence haystack) {
+        return firstOccurrences(haystack, 0, haystack.length());
+    }
+
+    /**
+     * Returns the lowest index at which each needle occurs entirely within
+     * haystack[start..end).
+     * 
+     * @param haystack The string to search into.
+     * @param start Index of haystack to start searching at. Requires
+     *              0 <= start <= end.
+     * @param end Index of haystack to stop searching at. Requires
+     *            end <= haystack.length().
+     * @return An array indexed by needle id, holding the lowest index of
+     *         haystack at which that needle was found, or -1 if it was not
+     *         found.
+     */
+    public int[] firstOccurrences(CharSequence haystack, int start, int end) {
+        int[] first = noOccurrences(start);
+        int state = ROOT;
+        for (int i = start; i < end; i++) {
+            state = advance(state, haystack.charAt(i), i, first);
+        }
+        return first;
+    }
+
+    /**
+     * Returns an array for recording first occurrences in, indexed by needle
+     * id, with only the empty needle found, at start, if there is one.
+     */
+    int[] noOccurrences(int start) {
+        int[] first = new int[numNeedles];
+        Arrays.fill(first, -1);
+        if (output[ROOT] >= 0) {
+            // the empty needle occurs right at the start
+            record(output[ROOT], start, first);
+        }
+        return first;
+    }
+
+    /**
+     * Returns the state reached from state on reading c at index of the
+     * haystack, and records in first every needle ending at index that had
+     * not been found yet. A search starts in state 0, the root.
+     */
+    int advance(int state, char c, int index, int[] first) {
+        state = next(state, c);
+        int o = (state != ROOT && output[state] >= 0) ? state : outputLink[state];
+        for (; o >= 0; o = outputLink[o]) {
+            int id = output[o];
+            if (first[id] < 0) {
+                record(id, index - needleLength[id] + 1, first);
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Like advance(int, char, int, int[]), for haystacks too long to be
+     * indexed by an int.
+     */
+    int advance(int state, char c, long index, long[] first) {
+        state = next(state, c);
+        int o = (state != ROOT && output[state] >= 0) ? state : outputLink[state];
+        for (; o >= 0; o = outputLink[o]) {
+            int id = output[o];
+            if (first[id] < 0) {
+                for (int d = id; d >= 0; d = sameNeedle[d]) {
+                    first[d] = index - needleLength[id] + 1;
+                }
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Returns a map from each needle found in haystack to the lowest index
+     * at which it was found, as specified by WordFinder.findWords.
+     * 
+     * @param haystack The string to search into.
+     * @return A map of needles that were found in the haystack mapped to the
+     *         lowest index of the haystack at which the needle was found.
+     */
+    public Map<String, Integer> findWords(CharSequence haystack) {
+        return toMap(firstOccurrences(haystack));
+    }
+
+    /**
+     * Returns a map from each needle with first[id] >= 0 to first[id].
+     */
+    Map<String, Integer> toMap(int[] first) {
+        Map<String, Integer> result = new HashMap<String, Integer>();
+        for (int id = 0; id < first.length; id++) {
+            if (first[id] >= 0) {
+                result.put(needle(id), first[id]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the length of needle id, without making a String of it.
+     */
+    int needleLength(int id) {
+        return needleLength[id];
+    }
+
+    /**
+     * Returns the next higher id of a needle equal to needle id, or -1.
+     */
+    int nextDuplicate(int id) {
+        return sameNeedle[id];
+    }
+
+    /**
+     * Returns the state reached from state on reading c, following failure
+     * links as needed.
+     */
+    int next(int state, char c) {
+        while (true) {
+            int t = child(state, c);
+            if (t >= 0) {
+                return t;
+            }
+            if (state == ROOT) {
+                return ROOT;
+            }
+            state = fail[state];
+        }
+    }
+
+    /**
+     * Returns the child of state labelled c, or -1.
+     */
+    private int child(int state, char c) {
+        int lo = firstChild[state];
+        int hi = firstChild[state + 1] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            char m = label[mid];
+            if (m < c) {
+                lo = mid + 1;
+            } else if (m > c) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Sets first[id] = index for id and every duplicate of it.
+     */
+    private void record(int id, int index, int[] first) {
+        for (int d = id; d >= 0; d = sameNeedle[d]) {
+            first[d] = index;
+        }
+    }
+
+    /**
+     * Reports an occurrence at index of id and every duplicate of it.
+     */
+    private void report(int id, int index, MatchHandler handler) {
+        for (int d = id; d >= 0; d = sameNeedle[d]) {
+            handler.match(d, index);
+        }
+    }
+
+    /**
+     * TrieBuilder grows a trie from words added in sorted order, with
+     * children kept as linked lists, and then lays it out breadth-first.
+     * 
+     * Because words arrive sorted, the path of the previous word is the only
+     * place a new word can branch off, and a new child always goes after
+     * every existing child of its parent. A word equal to the previous one
+     * is chained to it in sameNeedle instead of being added again.
+     */
+    private static class TrieBuilder {
+        final int[] sameNeedle;
+        final int[] needleLength;
+        int maxLength = 0;
+        private int previousId = -1;
+
+        private int size = 1;
+        private int[] firstChild = new int[16];
+        private int[] lastChild = new int[16];
+        private int[] nextSibling = new int[16];
+        private char[] label = new char[16];
+        private int[] output = new int[16];
+        // path[d] is the node of the previous word's prefix of length d
+        private int[] path = new int[16];
+
+        TrieBuilder(int numWords) {
+            sameNeedle = new int[numWords];
+            Arrays.fill(sameNeedle, -1);
+            needleLength = new int[numWords];
+            clear(0);
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * Add word with the given id. Requires word to be greater than or
+         * equal to every word added so far, and to share exactly its first
+         * shared chars with the previous word.
+         */
+        void addSorted(int id, int shared, CharSequence word) {
+            needleLength[id] = word.length();
+            maxLength = Math.max(maxLength, word.length());
+            if (previousId >= 0 && shared == word.length()
+                    && shared == needleLength[previousId]) {
+                sameNeedle[previousId] = id;
+                previousId = id;
+                return;
+            }
+            previousId = id;
+            if (path.length <= word.length()) {
+                path = Arrays.copyOf(path, Math.max(2 * path.length, word.length() + 1));
+            }
+            int node = path[shared];
+            for (int d = shared; d < word.length(); d++) {
+                node = addChild(node, word.charAt(d));
+                path[d + 1] = node;
+            }
+            output[node] = id;
+        }
+
+        private int addChild(int parent, char c) {
+            if (size == label.length) {
+                int capacity = 2 * size;
+                firstChild = Arrays.copyOf(firstChild, capacity);
+                lastChild = Arrays.copyOf(lastChild, capacity);
+                nextSibling = Arrays.copyOf(nextSibling, capacity);
+                label = Arrays.copyOf(label, capacity);
+                output = Arrays.copyOf(output, capacity);
+            }
+            int node = size++;
+            clear(node);
+            label[node] = c;
+            if (firstChild[parent] < 0) {
+                firstChild[parent] = node;
+            } else {
+                nextSibling[lastChild[parent]] = node;
+            }
+            lastChild[parent] = node;
+            return node;
+        }
+
+        private void clear(int node) {
+            firstChild[node] = -1;
+            lastChild[node] = -1;
+            nextSibling[node] = -1;
+            output[node] = -1;
+        }
+
+        /**
+         * Number the nodes breadth-first and fill in the first child, label
+         * and output of every node under its new number. Requires arrays of
+         * length size() + 1, size() and size().
+         */
+        void renumberBreadthFirst(int[] newFirstChild, char[] newLabel,
+                                  int[] newOutput) {
+            // queue[n] is the old node given the new number n
+            int[] queue = new int[size];
+            int tail = 1;
+            queue[0] = 0;
+            for (int head = 0; head < size; head++) {
+                int node = queue[head];
+                newFirstChild[head] = tail;
+                newLabel[head] = label[node];
+                newOutput[head] = output[node];
+                for (int c = firstChild[node]; c >= 0; c = nextSibling[c]) {
+                    queue[tail++] = c;
+                }
+            }
+            newFirstChild[size] = size;
+        }
+    }
+}
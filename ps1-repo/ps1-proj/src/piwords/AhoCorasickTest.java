@@ -0,0 +1,71 @@
+package piwords;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class AhoCorasickTest {
+    @Test
+    public void basicAhoCorasickTest() {
+        AhoCorasick matcher = new AhoCorasick(new String[]{"ab", "aaaa", "bb"});
+        assertArrayEquals(new int[]{0, 2, -1}, matcher.firstOccurrences("abaaaaba"));
+        assertEquals(3, matcher.size());
+        assertEquals("aaaa", matcher.needle(1));
+        assertEquals(4, matcher.maxNeedleLength());
+    }
+
+    @Test
+    public void firstOccurrencesTest() {
+        //test needles that are suffixes and prefixes of each other
+        AhoCorasick matcher = new AhoCorasick(
+                new String[]{"he", "she", "his", "hers", "e", "sh"});
+        assertArrayEquals(new int[]{5, 4, 0, 5, 6, 4}, matcher.firstOccurrences("hisushers"));
+        
+        //test duplicate needles and the empty needle
+        matcher = new AhoCorasick(new String[]{"na", "", "na", "nab"});
+        assertArrayEquals(new int[]{2, 0, 2, -1}, matcher.firstOccurrences("banana"));
+        assertArrayEquals(new int[]{-1, 0, -1, -1}, matcher.firstOccurrences(""));
+        
+        //test searching part of the haystack
+        matcher = new AhoCorasick(new String[]{"ab", "ba", "abab"});
+        assertArrayEquals(new int[]{4, 3, -1}, matcher.firstOccurrences("ababab", 3, 6));
+        assertArrayEquals(new int[]{0, 1, 0}, matcher.firstOccurrences("ababab", 0, 4));
+        
+        //test with no needles
+        matcher = new AhoCorasick(new String[]{});
+        assertEquals(0, matcher.firstOccurrences("anything").length);
+        assertEquals(0, matcher.maxNeedleLength());
+    }
+
+    @Test
+    public void randomFindWordsTest() {
+        //test against String.indexOf on a small alphabet, where needles overlap a lot
+        Random random = new Random(6005);
+        for (int trial = 0; trial < 50; trial++) {
+            String haystack = randomString(random, random.nextInt(200));
+            String[] needles = new String[random.nextInt(40)];
+            for (int i = 0; i < needles.length; i++) {
+                needles[i] = randomString(random, 1 + random.nextInt(6));
+            }
+            Map<String, Integer> expectedOutput = new HashMap<String, Integer>();
+            for (String needle : needles) {
+                if (haystack.indexOf(needle) != -1) {
+                    expectedOutput.put(needle, haystack.indexOf(needle));
+                }
+            }
+            assertEquals(expectedOutput, new AhoCorasick(needles).findWords(haystack));
+        }
+    }
+
+    private static String randomString(Random random, int length) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + random.nextInt(3)));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,340 @@
+package piwords;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * AlphabetOptimizer searches for an alphabet that makes the digits of pi,
+ * written in some base, spell as many words of a dictionary as possible.
+ * 
+ * The search is simulated annealing over the alphabet's slots, one chain
+ * per thread, each started from the same alphabet with its own random
+ * seed. A move either gives one slot a different char or swaps the chars
+ * of two slots. Coverage is never recounted from scratch: each chain keeps
+ * the number of occurrences of every word, and a move only rescans the
+ * text around the positions whose digit is in a changed slot, subtracting
+ * the occurrences that overlap those positions before the change and
+ * adding the ones that overlap them after.
+ */
+public class AlphabetOptimizer {
+    // Temperatures, in words of coverage, at the start and end of a chain.
+    private static final double START_TEMPERATURE = 2.0;
+    private static final double END_TEMPERATURE = 0.05;
+
+    private final int[] digits;
+    private final int base;
+    private final AhoCorasick matcher;
+    // slotPositions[s] are the indices of digits equal to s, in increasing order
+    private final int[][] slotPositions;
+    // duplicate[id] if needle id equals a needle with a lower id
+    private final boolean[] duplicate;
+
+    /**
+     * Make an optimizer for translations of digits.
+     * 
+     * @param digits The digits to translate. This array is not mutated or
+     *               retained.
+     * @param base The base of digits. Requires base >= 2.
+     * @param matcher An automaton built from the words to cover.
+     * @throws IllegalArgumentException if any value in digits is not a
+     *            digit in base.
+     */
+    public AlphabetOptimizer(int[] digits, int base, AhoCorasick matcher)
+            throws IllegalArgumentException {
+        int[] slotSizes = new int[base];
+        for (int digit : digits) {
+            if (digit < 0 || digit >= base) {
+                throw new IllegalArgumentException(
+                        "All elements of the digits array must be digits in base");
+            }
+            slotSizes[digit]++;
+        }
+        this.digits = digits.clone();
+        this.base = base;
+        this.matcher = matcher;
+        slotPositions = new int[base][];
+        for (int s = 0; s < base; s++) {
+            slotPositions[s] = new int[slotSizes[s]];
+            slotSizes[s] = 0;
+        }
+        for (int i = 0; i < digits.length; i++) {
+            slotPositions[digits[i]][slotSizes[digits[i]]++] = i;
+        }
+        duplicate = new boolean[matcher.size()];
+        for (int id = 0; id < duplicate.length; id++) {
+            int next = matcher.nextDuplicate(id);
+            if (next >= 0) {
+                duplicate[next] = true;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of distinct words that occur in the digits
+     * translated with alphabet, the same as the size of the map returned
+     * by WordFinder.findWords for that translation.
+     * 
+     * @param alphabet The mapping of digits to chars. Requires
+     *                 alphabet.length == base.
+     * @return the number of words covered.
+     */
+    public int coverage(char[] alphabet) {
+        int[] first = matcher.firstOccurrences(translate(alphabet));
+        int covered = 0;
+        for (int id = 0; id < first.length; id++) {
+            if (first[id] >= 0 && !duplicate[id]) {
+                covered++;
+            }
+        }
+        return covered;
+    }
+
+    /**
+     * Searches for an alphabet with higher coverage than initial, using only
+     * the chars that occur in initial.
+     * 
+     * @param initial The alphabet to start from. Requires initial.length ==
+     *                base. This array is not mutated.
+     * @param iterations The number of moves each chain tries. Requires
+     *                   iterations >= 0.
+     * @param parallelism The number of chains, each run on its own thread.
+     *                    Requires parallelism >= 1.
+     * @param seed Seed for the random moves; the same arguments and seed
+     *             give the same result.
+     * @return the alphabet with the highest coverage seen by any chain, which
+     *         is initial if no move improved on it.
+     */
+    public char[] optimize(char[] initial, int iterations, int parallelism, long seed) {
+        return search(initial, iterations, parallelism, seed).alphabet;
+    }
+
+    /**
+     * An alphabet found by search, with its coverage as the chain that found
+     * it counted it, incrementally, rather than by a recount.
+     */
+    static class Result {
+        final char[] alphabet;
+        final int coverage;
+
+        Result(char[] alphabet, int coverage) {
+            this.alphabet = alphabet;
+            this.coverage = coverage;
+        }
+    }
+
+    /**
+     * Like optimize, but also returns the coverage of the alphabet found.
+     */
+    Result search(char[] initial, int iterations, int parallelism, long seed) {
+        if (initial.length != base) {
+            throw new IllegalArgumentException("The alphabet must have one char per digit.");
+        }
+        Random seeds = new Random(seed);
+        List<AnnealTask> tasks = new ArrayList<AnnealTask>();
+        for (int i = 0; i < parallelism; i++) {
+            tasks.add(new AnnealTask(initial, iterations, seeds.nextLong()));
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (AnnealTask task : tasks) {
+                pool.execute(task);
+            }
+            AnnealTask best = null;
+            for (AnnealTask task : tasks) {
+                task.join();
+                if (best == null || task.bestCoverage > best.bestCoverage) {
+                    best = task;
+                }
+            }
+            return new Result(best.bestAlphabet, best.bestCoverage);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private String translate(char[] alphabet) {
+        char[] chars = new char[digits.length];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = alphabet[digits[i]];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * One annealing chain, with its own translation of the digits and word
+     * counts.
+     */
+    private class AnnealTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final char[] alphabet;
+        private final int iterations;
+        private final Random random;
+        private final StringBuilder text;
+        // counts[id] is the number of occurrences of needle id in text
+        private final int[] counts;
+        private int coverage;
+        char[] bestAlphabet;
+        int bestCoverage;
+
+        AnnealTask(char[] initial, int iterations, long seed) {
+            this.alphabet = initial.clone();
+            this.iterations = iterations;
+            this.random = new Random(seed);
+            this.text = new StringBuilder(translate(alphabet));
+            this.counts = new int[matcher.size()];
+        }
+
+        @Override
+        protected void compute() {
+            matcher.findAll(text, new AhoCorasick.MatchHandler() {
+                public void match(int id, int index) {
+                    if (counts[id]++ == 0 && !duplicate[id]) {
+                        coverage++;
+                    }
+                }
+            });
+            bestAlphabet = alphabet.clone();
+            bestCoverage = coverage;
+
+            char[] letters = distinctChars(alphabet);
+            double cooling = (iterations > 1)
+                    ? Math.pow(END_TEMPERATURE / START_TEMPERATURE, 1.0 / (iterations - 1))
+                    : 1;
+            double temperature = START_TEMPERATURE;
+            for (int it = 0; it < iterations; it++, temperature *= cooling) {
+                int[] slots;
+                char[] chars;
+                int s = random.nextInt(base);
+                if (random.nextBoolean()) {
+                    int t = random.nextInt(base);
+                    if (alphabet[s] == alphabet[t]) {
+                        continue;
+                    }
+                    slots = new int[]{s, t};
+                    chars = new char[]{alphabet[t], alphabet[s]};
+                } else {
+                    char c = letters[random.nextInt(letters.length)];
+                    if (c == alphabet[s]) {
+                        continue;
+                    }
+                    slots = new int[]{s};
+                    chars = new char[]{c};
+                }
+                char[] previous = new char[slots.length];
+                for (int i = 0; i < slots.length; i++) {
+                    previous[i] = alphabet[slots[i]];
+                }
+
+                int before = coverage;
+                change(slots, chars);
+                int delta = coverage - before;
+                if (delta >= 0 || random.nextDouble() < Math.exp(delta / temperature)) {
+                    if (coverage > bestCoverage) {
+                        bestCoverage = coverage;
+                        bestAlphabet = alphabet.clone();
+                    }
+                } else {
+                    change(slots, previous);
+                }
+            }
+        }
+
+        /**
+         * Sets alphabet[slots[i]] = chars[i] for each i, updating text,
+         * counts and coverage.
+         */
+        private void change(int[] slots, char[] chars) {
+            int[] changed = slotPositions[slots[0]];
+            for (int i = 1; i < slots.length; i++) {
+                changed = merge(changed, slotPositions[slots[i]]);
+            }
+            int[] windows = windows(changed);
+            countOverlapping(windows, changed, -1);
+            for (int i = 0; i < slots.length; i++) {
+                alphabet[slots[i]] = chars[i];
+                for (int p : slotPositions[slots[i]]) {
+                    text.setCharAt(p, chars[i]);
+                }
+            }
+            countOverlapping(windows, changed, +1);
+        }
+
+        /**
+         * Adds sign to the count of every occurrence within the windows that
+         * overlaps a changed position. windows holds start, end pairs.
+         */
+        private void countOverlapping(int[] windows, final int[] changed, final int sign) {
+            AhoCorasick.MatchHandler handler = new AhoCorasick.MatchHandler() {
+                public void match(int id, int index) {
+                    int end = index + matcher.needleLength(id);
+                    int q = Arrays.binarySearch(changed, index);
+                    if (q < 0) {
+                        q = -q - 1;
+                    }
+                    if (q == changed.length || changed[q] >= end) {
+                        return;
+                    }
+                    counts[id] += sign;
+                    if (!duplicate[id]) {
+                        if (sign > 0 && counts[id] == 1) {
+                            coverage++;
+                        } else if (sign < 0 && counts[id] == 0) {
+                            coverage--;
+                        }
+                    }
+                }
+            };
+            for (int w = 0; w < windows.length; w += 2) {
+                matcher.findAll(text, windows[w], windows[w + 1], handler);
+            }
+        }
+    }
+
+    /**
+     * Returns the start, end pairs of the merged ranges of text within
+     * which every occurrence overlapping a position of changed lies.
+     */
+    private int[] windows(int[] changed) {
+        int reach = Math.max(0, matcher.maxNeedleLength() - 1);
+        int[] windows = new int[2 * changed.length];
+        int count = 0;
+        for (int p : changed) {
+            int start = Math.max(0, p - reach);
+            int end = Math.min(digits.length, p + reach + 1);
+            if (count > 0 && start <= windows[count - 1]) {
+                windows[count - 1] = end;
+            } else {
+                windows[count++] = start;
+                windows[count++] = end;
+            }
+        }
+        return Arrays.copyOf(windows, count);
+    }
+
+    private static int[] merge(int[] a, int[] b) {
+        int[] merged = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < merged.length; k++) {
+            merged[k] = (j == b.length || (i < a.length && a[i] < b[j])) ? a[i++] : b[j++];
+        }
+        return merged;
+    }
+
+    private static char[] distinctChars(char[] alphabet) {
+        char[] sorted = alphabet.clone();
+        Arrays.sort(sorted);
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[count++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, count);
+    }
+}
@@ -0,0 +1,56 @@
+package piwords;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class AlphabetOptimizerTest {
+    private static final char[] BASIC_ALPHABET =
+        {'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k', 'l', 'm', 'n',
+         'o', 'p', 'q', 'r', 's', 't', 'u', 'v', 'w', 'x', 'y', 'z'};
+
+    @Test
+    public void coverageTest() {
+        //digits {1,0,2,0} spell "java" with alphabet {a,j,v}
+        AhoCorasick matcher = new AhoCorasick(new String[]{"java", "av", "jv", "av", "a"});
+        AlphabetOptimizer optimizer = new AlphabetOptimizer(new int[]{1, 0, 2, 0}, 3, matcher);
+        //test that duplicates are only counted once
+        assertEquals(3, optimizer.coverage(new char[]{'a', 'j', 'v'}));
+        assertEquals(0, optimizer.coverage(new char[]{'x', 'y', 'z'}));
+    }
+
+    @Test
+    public void optimizeTest() {
+        int[] digits = BaseTranslator.convertBase(PiGenerator.computePiInHex(400), 16, 26, 400);
+        String[] words = {"pi", "it", "up", "is", "at", "an", "the", "tea", "eat",
+                          "ate", "net", "ten", "tan", "ant", "sat", "set", "tin",
+                          "nit", "sit", "its", "tie", "ties", "seat", "east", "neat"};
+        AhoCorasick matcher = new AhoCorasick(words);
+        AlphabetOptimizer optimizer = new AlphabetOptimizer(digits, 26, matcher);
+        int initialCoverage = optimizer.coverage(BASIC_ALPHABET);
+
+        AlphabetOptimizer.Result found = optimizer.search(BASIC_ALPHABET, 2000, 2, 6005L);
+        char[] optimized = found.alphabet;
+        assertEquals(26, optimized.length);
+        //test that the incremental counts agree with a full recount
+        int optimizedCoverage = optimizer.coverage(optimized);
+        assertEquals(optimizedCoverage, found.coverage);
+        assertEquals(WordFinder.findWords(DigitsToStringConverter.convertDigitsToString(
+                digits, 26, optimized), words).size(), optimizedCoverage);
+        //test that the search finds a better alphabet for this input
+        assertEquals(true, optimizedCoverage > initialCoverage);
+        //test that the same seed gives the same alphabet
+        assertArrayEquals(optimized, optimizer.optimize(BASIC_ALPHABET, 2000, 2, 6005L));
+    }
+
+    @Test
+    public void invalidDigitTest() {
+        boolean threwException = false;
+        try {
+            new AlphabetOptimizer(new int[]{0, 3}, 3, new AhoCorasick(new String[]{"a"}));
+        } catch (IllegalArgumentException e) {
+            threwException = true;
+        }
+        assertEquals(true, threwException);
+    }
+}
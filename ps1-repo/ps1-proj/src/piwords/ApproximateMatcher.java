@@ -0,0 +1,443 @@
+package piwords;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ApproximateMatcher finds where needles first occur in a haystack with at
+ * most k errors, each error being one inserted, deleted or substituted char,
+ * in a single pass over the haystack.
+ * 
+ * It uses the bit-parallel algorithm of Wu and Manber. Needle i is given a
+ * field of needle.length() bits, bit j of which records whether its first
+ * j + 1 chars match a substring ending at the current haystack char with at
+ * most d errors, for each d from 0 to k. Fields of several short needles
+ * are packed into one long, so each haystack char updates up to 64 needle
+ * chars with a handful of word operations per error level.
+ * 
+ * Scanning every needle that way costs k + 1 word operations per 64 needle
+ * chars for each haystack char, far more than exact matching. So needles
+ * long enough to be split into k + 1 pieces of at least MIN_PIECE_LENGTH
+ * chars are filtered instead: an occurrence with at most k errors contains
+ * at least one piece exactly, because each error touches only one piece.
+ * One Aho-Corasick pass finds the pieces, and the bit-parallel check only
+ * runs on the needle's own field, in the window around each piece found.
+ * Shorter needles are scanned as before. The pieces split a needle evenly,
+ * so they are as long as its length allows.
+ * 
+ * Even so, k = 2 on the full dictionary is not close to exact speed. Most
+ * words are short enough that their pieces are 2 or 3 chars, and some piece
+ * of some needle then ends at nearly every haystack char. Against 10000 hex
+ * digits of pi translated to letters, exact matching of the dictionary
+ * takes a few milliseconds, k = 1 roughly ten times as long, and k = 2
+ * roughly a hundred times as long, nearly all of it checking the windows of
+ * 6 to 8 char needles. Building the matcher for the full dictionary takes
+ * longer still, so it should be built once and reused, e.g. through
+ * WordFinder.findWordsApproximate(String, ApproximateMatcher).
+ * 
+ * Since an approximate occurrence has no single start, occurrences are
+ * reported by where they end: the lowest e such that some substring
+ * haystack[s..e) is within k errors of the needle. With k = 0 that is the
+ * index found by WordFinder.findWords plus the needle's length.
+ */
+public class ApproximateMatcher {
+    // longest needle that fits in a long
+    static final int MAX_NEEDLE_LENGTH = 64;
+    // Shorter pieces occur too often in the haystack for filtering to pay.
+    static final int MIN_PIECE_LENGTH = 2;
+
+    private final String[] needles;
+    private final int maxErrors;
+    private final int numWords;
+    // charIndex[c] is the row of matchMask for char c, 0 for chars in no needle
+    private final char[] charIndex;
+    // matchMask[row * numWords + w] has bit j of a field set where that
+    // field's needle has the row's char at position j
+    private final long[] matchMask;
+    // lowest and highest bit of every field in word w, and all its bits
+    private final long[] firstBits;
+    private final long[] lastBits;
+    private final long[] usedBits;
+    // fields of word w are fieldNeedle[wordFirstField[w] .. wordFirstField[w+1]),
+    // with their highest bits at fieldLastBit
+    private final int[] wordFirstField;
+    private final int[] fieldNeedle;
+    private final int[] fieldLastBit;
+    // word and lowest bit of the field of needle id, or -1 for the empty needle
+    private final int[] needleWord;
+    private final int[] needleStart;
+    // highest bits of the fields in word w of needles that are filtered
+    // rather than scanned
+    private final long[] filteredBits;
+    // automaton for the pieces of the filtered needles, or null if there are
+    // none; piece p is needle pieceNeedle[p] from char pieceOffset[p] on
+    private final AhoCorasick pieces;
+    private final int[] pieceNeedle;
+    private final int[] pieceOffset;
+
+    // rep invariant: every needle of length >= 1 has exactly one field;
+    //   fields don't overlap and fit in 64 bits; the pieces of a filtered
+    //   needle are k + 1 consecutive substrings that make up the needle
+
+    /**
+     * Make a matcher for needles with up to maxErrors errors.
+     * 
+     * @param needles The strings to search for. This array is not mutated.
+     * @param maxErrors The number of errors allowed. Requires maxErrors >= 0.
+     * @throws IllegalArgumentException if a needle is longer than 64 chars.
+     */
+    public ApproximateMatcher(String[] needles, int maxErrors)
+            throws IllegalArgumentException {
+        this(needles, maxErrors, MIN_PIECE_LENGTH);
+    }
+
+    /**
+     * Like ApproximateMatcher(String[], int), but filters every needle that
+     * splits into pieces of at least minPieceLength chars. Requires
+     * minPieceLength >= 1.
+     */
+    ApproximateMatcher(String[] needles, int maxErrors, int minPieceLength)
+            throws IllegalArgumentException {
+        this.needles = needles.clone();
+        this.maxErrors = maxErrors;
+
+        // pack fields into words in needle order, scanned needles first so
+        // that the scan touches as few words as possible
+        needleStart = new int[needles.length];
+        needleWord = new int[needles.length];
+        Arrays.fill(needleWord, -1);
+        int words = 0;
+        int used = MAX_NEEDLE_LENGTH;
+        int numFields = 0;
+        int numPieces = 0;
+        // ids of the needles with fields, in the order they were packed
+        int[] packed = new int[needles.length];
+        long minFiltered = (long) (maxErrors + 1) * minPieceLength;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int id = 0; id < needles.length; id++) {
+                int m = needles[id].length();
+                if (m > MAX_NEEDLE_LENGTH) {
+                    throw new IllegalArgumentException(
+                            "Needles for approximate matching must be at most 64 chars: "
+                            + needles[id]);
+                }
+                boolean filtered = m >= minFiltered;
+                if (m == 0 || filtered != (pass == 1)) {
+                    continue;
+                }
+                if (used + m > MAX_NEEDLE_LENGTH) {
+                    words++;
+                    used = 0;
+                }
+                needleWord[id] = words - 1;
+                needleStart[id] = used;
+                used += m;
+                packed[numFields++] = id;
+                if (filtered) {
+                    numPieces += maxErrors + 1;
+                }
+            }
+        }
+        numWords = words;
+
+        charIndex = new char[Character.MAX_VALUE + 1];
+        int rows = 1;
+        for (String needle : needles) {
+            for (int j = 0; j < needle.length(); j++) {
+                char c = needle.charAt(j);
+                if (charIndex[c] == 0) {
+                    charIndex[c] = (char) rows++;
+                }
+            }
+        }
+
+        matchMask = new long[rows * numWords];
+        firstBits = new long[numWords];
+        lastBits = new long[numWords];
+        usedBits = new long[numWords];
+        wordFirstField = new int[numWords + 1];
+        fieldNeedle = new int[numFields];
+        fieldLastBit = new int[numFields];
+        filteredBits = new long[numWords];
+        String[] pieceStrings = new String[numPieces];
+        pieceNeedle = new int[numPieces];
+        pieceOffset = new int[numPieces];
+        int piece = 0;
+        for (int id = 0; id < needles.length; id++) {
+            int m = needles[id].length();
+            if (m == 0 || m < minFiltered) {
+                continue;
+            }
+            filteredBits[needleWord[id]] |= 1L << (needleStart[id] + m - 1);
+            for (int j = 0; j <= maxErrors; j++) {
+                int from = (int) ((long) m * j / (maxErrors + 1));
+                int to = (int) ((long) m * (j + 1) / (maxErrors + 1));
+                pieceStrings[piece] = needles[id].substring(from, to);
+                pieceNeedle[piece] = id;
+                pieceOffset[piece] = from;
+                piece++;
+            }
+        }
+        pieces = (numPieces > 0) ? new AhoCorasick(pieceStrings) : null;
+
+        for (int field = 0; field < numFields; field++) {
+            int id = packed[field];
+            String needle = needles[id];
+            int w = needleWord[id];
+            int start = needleStart[id];
+            for (int j = 0; j < needle.length(); j++) {
+                matchMask[charIndex[needle.charAt(j)] * numWords + w] |= 1L << (start + j);
+            }
+            firstBits[w] |= 1L << start;
+            lastBits[w] |= 1L << (start + needle.length() - 1);
+            usedBits[w] |= (needle.length() == 64) ? -1L
+                           : ((1L << needle.length()) - 1) << start;
+            fieldNeedle[field] = id;
+            fieldLastBit[field] = start + needle.length() - 1;
+            wordFirstField[w + 1] = field + 1;
+        }
+    }
+
+    /**
+     * @return the number of errors allowed.
+     */
+    public int maxErrors() {
+        return maxErrors;
+    }
+
+    /**
+     * Returns where each needle first occurs in haystack with at most
+     * maxErrors() errors.
+     * 
+     * @param haystack The string to search into.
+     * @return An array indexed by needle id, holding the lowest index e such
+     *         that some substring of haystack ending just before e is within
+     *         maxErrors() errors of the needle, or -1 if there is none.
+     */
+    public int[] firstMatchEnds(CharSequence haystack) {
+        int[] ends = new int[needles.length];
+        Arrays.fill(ends, -1);
+        for (int id = 0; id < needles.length; id++) {
+            if (needles[id].length() <= maxErrors) {
+                // deleting every char matches the empty string before index 0
+                ends[id] = 0;
+            }
+        }
+        scan(haystack, ends);
+        if (pieces != null) {
+            filter(haystack, ends);
+        }
+        return ends;
+    }
+
+    /**
+     * Sets ends[id] as specified by firstMatchEnds for every needle that is
+     * not filtered, by running every field that holds one over the whole
+     * haystack.
+     */
+    private void scan(CharSequence haystack, int[] ends) {
+        int k = maxErrors;
+        // state[d * numWords + w]: bit j of a field is set if the first j + 1
+        // chars of its needle are within d errors of a substring ending here;
+        // initially only prefixes that can be deleted entirely
+        long[] state = new long[(k + 1) * numWords];
+        long[] found = new long[numWords];
+        for (int w = 0; w < numWords; w++) {
+            long prefixes = 0;
+            for (int d = 0; d <= k; d++) {
+                state[d * numWords + w] = prefixes;
+                prefixes = ((prefixes << 1) | firstBits[w]) & usedBits[w];
+            }
+            // filtered needles count as found, so words of only those are skipped
+            found[w] = (state[k * numWords + w] & lastBits[w]) | filteredBits[w];
+        }
+        // words with fields still to be found, in increasing order
+        int[] active = new int[numWords];
+        int numActive = 0;
+        for (int w = 0; w < numWords; w++) {
+            if (found[w] != lastBits[w]) {
+                active[numActive++] = w;
+            }
+        }
+
+        for (int i = 0; i < haystack.length() && numActive > 0; i++) {
+            int row = charIndex[haystack.charAt(i)] * numWords;
+            int kept = 0;
+            for (int a = 0; a < numActive; a++) {
+                int w = active[a];
+                long first = firstBits[w];
+                long match = matchMask[row + w];
+                long previous = state[w];
+                long next = ((previous << 1) | first) & match;
+                state[w] = next;
+                for (int d = 1; d <= k; d++) {
+                    int index = d * numWords + w;
+                    long current = state[index];
+                    // match, insertion, substitution, deletion
+                    long updated = (((current << 1) | first) & match)
+                                   | previous
+                                   | (previous << 1) | first
+                                   | (next << 1);
+                    updated &= usedBits[w];
+                    previous = current;
+                    next = updated;
+                    state[index] = updated;
+                }
+                long hits = next & lastBits[w] & ~found[w];
+                if (hits != 0) {
+                    found[w] |= hits;
+                    record(w, hits, i + 1, ends);
+                }
+                if (found[w] != lastBits[w]) {
+                    active[kept++] = w;
+                }
+            }
+            numActive = kept;
+        }
+    }
+
+    /**
+     * Sets ends[id] as specified by firstMatchEnds for every filtered
+     * needle, by checking the window around each exact occurrence of one
+     * of its pieces.
+     */
+    private void filter(final CharSequence haystack, final int[] ends) {
+        final int k = maxErrors;
+        final int n = haystack.length();
+        // Each needle's field is run over haystack[stateStart[id]..statePos[id])
+        // so far, leaving its state in state[id * (k + 1) ..]. Windows that
+        // overlap it continue from there rather than starting over, so no
+        // char is checked twice for a needle whose windows keep overlapping.
+        final long[] state = new long[needles.length * (k + 1)];
+        final int[] stateStart = new int[needles.length];
+        final int[] statePos = new int[needles.length];
+        Arrays.fill(statePos, -1);
+        pieces.findAll(haystack, new AhoCorasick.MatchHandler() {
+            public void match(int piece, int index) {
+                int id = pieceNeedle[piece];
+                // an occurrence containing this piece ends after it, and
+                // pieces are reported in order of where they end
+                int pieceEnd = index + pieces.needleLength(piece);
+                if (ends[id] >= 0 && ends[id] <= pieceEnd) {
+                    return;
+                }
+                // the needle's chars before and after the piece match at
+                // most k chars more or fewer of the haystack
+                int needleStart = index - pieceOffset[piece];
+                int from = Math.max(0, needleStart - k);
+                int to = Math.min(n, needleStart + needles[id].length() + k);
+                if (ends[id] >= 0) {
+                    to = Math.min(to, ends[id] - 1);
+                }
+                if (statePos[id] < 0 || from < stateStart[id] || from > statePos[id]) {
+                    startField(id, state);
+                    stateStart[id] = from;
+                    statePos[id] = from;
+                }
+                int end = runField(id, haystack, statePos[id], to, state);
+                if (end >= 0) {
+                    ends[id] = end;
+                    statePos[id] = end;
+                } else {
+                    statePos[id] = Math.max(statePos[id], to);
+                }
+            }
+        });
+    }
+
+    /**
+     * Sets the state of needle id's field in state, as used by runField, to
+     * that before any haystack char.
+     */
+    private void startField(int id, long[] state) {
+        int k = maxErrors;
+        long used = fieldMask(id);
+        long prefixes = 0;
+        for (int d = 0; d <= k; d++) {
+            state[id * (k + 1) + d] = prefixes;
+            prefixes = ((prefixes << 1) | 1) & used;
+        }
+    }
+
+    /**
+     * Runs just needle id's field over haystack[from..to), as scan runs
+     * every field but with the field shifted down to bit 0, and its state
+     * kept in state[id * (maxErrors + 1) ..]. Requires the needle to be
+     * longer than maxErrors.
+     * 
+     * @return the lowest e in (from, to] such that some substring ending
+     *         just before e is within maxErrors errors of the needle, in
+     *         which case the state is left as it was after e - 1, or -1.
+     */
+    private int runField(int id, CharSequence haystack, int from, int to, long[] state) {
+        int k = maxErrors;
+        int w = needleWord[id];
+        int start = needleStart[id];
+        long used = fieldMask(id);
+        long last = 1L << (needles[id].length() - 1);
+        int base = id * (k + 1);
+        for (int i = from; i < to; i++) {
+            long match = (matchMask[charIndex[haystack.charAt(i)] * numWords + w] >>> start)
+                         & used;
+            long previous = state[base];
+            long next = ((previous << 1) | 1) & match;
+            state[base] = next;
+            for (int d = 1; d <= k; d++) {
+                long current = state[base + d];
+                long updated = (((current << 1) | 1) & match)
+                               | previous
+                               | (previous << 1) | 1
+                               | (next << 1);
+                updated &= used;
+                previous = current;
+                next = updated;
+                state[base + d] = updated;
+            }
+            if ((next & last) != 0) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the bits of needle id's field, shifted down to bit 0.
+     */
+    private long fieldMask(int id) {
+        int m = needles[id].length();
+        return (m == 64) ? -1L : (1L << m) - 1;
+    }
+
+    /**
+     * Sets ends[id] = end for the needle of every field of word w whose
+     * highest bit is set in hits.
+     */
+    private void record(int w, long hits, int end, int[] ends) {
+        for (int f = wordFirstField[w]; f < wordFirstField[w + 1]; f++) {
+            if ((hits & (1L << fieldLastBit[f])) != 0) {
+                ends[fieldNeedle[f]] = end;
+            }
+        }
+    }
+
+    /**
+     * Returns a map from each needle that occurs in haystack with at most
+     * maxErrors() errors to where its first such occurrence ends, as
+     * specified by firstMatchEnds.
+     * 
+     * @param haystack The string to search into.
+     * @return A map of needles that were found in the haystack mapped to the
+     *         lowest index at which an approximate occurrence ends.
+     */
+    public Map<String, Integer> findWords(CharSequence haystack) {
+        int[] ends = firstMatchEnds(haystack);
+        Map<String, Integer> result = new HashMap<String, Integer>();
+        for (int id = 0; id < ends.length; id++) {
+            if (ends[id] >= 0 && !result.containsKey(needles[id])) {
+                result.put(needles[id], ends[id]);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,117 @@
+package piwords;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ApproximateMatcherTest {
+    /**
+     * Returns the lowest e such that some haystack[s..e) is within
+     * maxErrors edits of needle, or -1, by dynamic programming.
+     */
+    private static int slowFirstMatchEnd(String haystack, String needle, int maxErrors) {
+        int m = needle.length();
+        // cost[j]: fewest edits turning needle[0..j) into a suffix of the text so far
+        int[] cost = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            cost[j] = j;
+        }
+        if (cost[m] <= maxErrors) {
+            return 0;
+        }
+        for (int i = 0; i < haystack.length(); i++) {
+            int diagonal = cost[0];
+            for (int j = 1; j <= m; j++) {
+                int substitute = diagonal + (needle.charAt(j - 1) == haystack.charAt(i) ? 0 : 1);
+                diagonal = cost[j];
+                cost[j] = Math.min(substitute, Math.min(cost[j] + 1, cost[j - 1] + 1));
+            }
+            if (cost[m] <= maxErrors) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    public void basicApproximateTest() {
+        String haystack = "xxjavxisfunnn";
+        String[] needles = {"java", "fun", "sfn", "zzzz", "ab", ""};
+        Map<String, Integer> found = WordFinder.findWordsApproximate(haystack, needles, 1);
+        assertEquals(Integer.valueOf(5), found.get("java")); //"jav", one deletion
+        assertEquals(Integer.valueOf(10), found.get("fun")); //"fu", one deletion
+        assertEquals(Integer.valueOf(9), found.get("sfn")); //"sf", one deletion
+        assertEquals(Integer.valueOf(4), found.get("ab")); //"a", one deletion
+        assertEquals(Integer.valueOf(0), found.get(""));
+        assertEquals(false, found.containsKey("zzzz"));
+        //test a needle no longer than the number of errors
+        assertEquals(Integer.valueOf(0),
+                     WordFinder.findWordsApproximate(haystack, needles, 2).get("ab"));
+        //test that a prebuilt matcher finds the same words
+        assertEquals(found, WordFinder.findWordsApproximate(haystack,
+                new ApproximateMatcher(needles, 1)));
+    }
+
+    @Test
+    public void exactMatchTest() {
+        //test that with no errors the ends agree with findWords
+        String haystack = "abaaaaba";
+        String[] needles = {"ab", "aaaa", "bb"};
+        Map<String, Integer> found = WordFinder.findWordsApproximate(haystack, needles, 0);
+        assertEquals(2, found.size());
+        assertEquals(Integer.valueOf(0 + 2), found.get("ab"));
+        assertEquals(Integer.valueOf(2 + 4), found.get("aaaa"));
+    }
+
+    @Test
+    public void randomAgainstDynamicProgrammingTest() {
+        Random random = new Random(6005);
+        for (int trial = 0; trial < 20; trial++) {
+            StringBuilder haystack = new StringBuilder();
+            for (int i = 0; i < 300; i++) {
+                haystack.append((char) ('a' + random.nextInt(4)));
+            }
+            //many needles, so several share a long, plus one of 64 chars
+            String[] needles = new String[40];
+            for (int id = 0; id < needles.length; id++) {
+                int length = (id == 0) ? 64 : 1 + random.nextInt(12);
+                StringBuilder needle = new StringBuilder();
+                for (int j = 0; j < length; j++) {
+                    needle.append((char) ('a' + random.nextInt(5)));
+                }
+                needles[id] = needle.toString();
+            }
+            for (int k = 0; k <= 2; k++) {
+                //test the default split between scanned and filtered needles,
+                //and filtering every needle longer than k
+                int[][] results = {new ApproximateMatcher(needles, k).firstMatchEnds(haystack),
+                        new ApproximateMatcher(needles, k, 1).firstMatchEnds(haystack)};
+                for (int[] ends : results) {
+                    for (int id = 0; id < needles.length; id++) {
+                        assertEquals(needles[id] + " with " + k + " errors",
+                                     slowFirstMatchEnd(haystack.toString(), needles[id], k),
+                                     ends[id]);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void tooLongNeedleTest() {
+        StringBuilder needle = new StringBuilder();
+        for (int i = 0; i < 65; i++) {
+            needle.append('a');
+        }
+        boolean threwException = false;
+        try {
+            new ApproximateMatcher(new String[]{"ok", needle.toString()}, 1);
+        } catch (IllegalArgumentException e) {
+            threwException = true;
+        }
+        assertEquals(true, threwException);
+    }
+}
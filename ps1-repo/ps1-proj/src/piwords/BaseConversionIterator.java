@@ -0,0 +1,154 @@
+package piwords;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * BaseConversionIterator produces the baseB digits of a fraction given in
+ * baseA one at a time, most significant first, using the same
+ * multiply-and-carry method as BaseTranslator.convertBaseQuadratic.
+ * 
+ * The input digits are packed into long limbs of several baseA digits each,
+ * which is the only state kept, so memory does not depend on how many
+ * digits are produced. Limbs at the end that have become zero are dropped,
+ * since multiplying by baseB can never make them nonzero again.
+ */
+class BaseConversionIterator implements PrimitiveIterator.OfInt {
+    private final int baseB;
+    private final int precisionB;
+    // each limb holds limbDigits baseA digits, i.e. a value below limbBase
+    private final int limbDigits;
+    private final long limbBase;
+    private final long[] limbs;
+    // limbs[length..] are all zero
+    private int length;
+    private int position;
+
+    // rep invariant: 0 <= limbs[i] < limbBase; limbBase * baseB does not
+    //   overflow; 0 <= length <= limbs.length; 0 <= position <= precisionB
+
+    /**
+     * Make an iterator over the first precisionB baseB digits of the fraction
+     * 0.digits in baseA. Requires valid baseA digits, baseA, baseB >= 2 and
+     * precisionB >= 0. digits is not mutated or retained.
+     */
+    BaseConversionIterator(int[] digits, int baseA, int baseB, int precisionB) {
+        this(BaseTranslator.digitArray(digits), digits.length, baseA, baseB, precisionB);
+    }
+
+    /**
+     * Make an iterator over the first precisionB baseB digits of the fraction
+     * 0.digits in digits.base(). Requires baseB >= 2 and precisionB >= 0.
+     * digits is not mutated or retained.
+     */
+    BaseConversionIterator(DigitBuffer digits, int baseB, int precisionB) {
+        this(BaseTranslator.digitArray(digits), digits.length(), digits.base(),
+             baseB, precisionB);
+    }
+
+    /**
+     * Make an iterator over the first precisionB baseB digits of the fraction
+     * 0.digits[0..numDigits) in baseA. Requires valid baseA digits, baseA,
+     * baseB >= 2 and precisionB >= 0. digits is not mutated or retained.
+     */
+    BaseConversionIterator(BaseTranslator.DigitArray digits, int numDigits, int baseA,
+                           int baseB, int precisionB) {
+        this.baseB = baseB;
+        this.precisionB = precisionB;
+        int digitsPerLimb = 1;
+        long base = baseA;
+        while (base <= Long.MAX_VALUE / baseB / baseA) {
+            base *= baseA;
+            digitsPerLimb++;
+        }
+        this.limbDigits = digitsPerLimb;
+        this.limbBase = base;
+        this.limbs = new long[(numDigits + limbDigits - 1) / limbDigits];
+        this.length = limbs.length;
+        this.position = 0;
+        // pad the last limb with zero digits, which doesn't change the value
+        for (int i = 0; i < limbs.length; i++) {
+            long limb = 0;
+            for (int j = i * limbDigits; j < (i + 1) * limbDigits; j++) {
+                limb = limb * baseA + (j < numDigits ? digits.get(j) : 0);
+            }
+            limbs[i] = limb;
+        }
+        trimZeroLimbs();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return position < precisionB;
+    }
+
+    @Override
+    public int nextInt() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        position++;
+        long carry = 0;
+        for (int j = length - 1; j >= 0; j--) {
+            long x = limbs[j] * baseB + carry;
+            limbs[j] = x % limbBase;
+            carry = x / limbBase;
+        }
+        trimZeroLimbs();
+        return (int) carry;
+    }
+
+    /**
+     * @return the number of digits produced so far.
+     */
+    int position() {
+        return position;
+    }
+
+    /**
+     * Write the state of the iterator to out, to be read back by readState
+     * into an iterator made from the same input.
+     */
+    void writeState(DataOutputStream out) throws IOException {
+        out.writeInt(position);
+        out.writeInt(length);
+        for (int j = 0; j < length; j++) {
+            out.writeLong(limbs[j]);
+        }
+    }
+
+    /**
+     * Replace the state of the iterator with one written by writeState.
+     * 
+     * @throws IOException if in cannot be read or doesn't hold a state of
+     *         an iterator like this one.
+     */
+    void readState(DataInputStream in) throws IOException {
+        int newPosition = in.readInt();
+        int newLength = in.readInt();
+        if (newPosition < 0 || newPosition > precisionB
+                || newLength < 0 || newLength > limbs.length) {
+            throw new IOException("Base conversion state doesn't match the input");
+        }
+        for (int j = 0; j < newLength; j++) {
+            long limb = in.readLong();
+            if (limb < 0 || limb >= limbBase) {
+                throw new IOException("Base conversion state doesn't match the input");
+            }
+            limbs[j] = limb;
+        }
+        Arrays.fill(limbs, newLength, limbs.length, 0);
+        position = newPosition;
+        length = newLength;
+    }
+
+    private void trimZeroLimbs() {
+        while (length > 0 && limbs[length - 1] == 0) {
+            length--;
+        }
+    }
+}
@@ -1,7 +1,28 @@
 package piwords;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
 
 public class BaseTranslator {
+    // Above this many digit operations (input length * output length),
+    // convertBase switches to the divide-and-conquer algorithm.
+    static final long DIVIDE_AND_CONQUER_THRESHOLD = 1L << 20;
+
+    // With a checkpoint, progress is saved whenever this long has passed
+    // since the last save.
+    static final long CHECKPOINT_INTERVAL_MILLIS = 60 * 1000;
+
     /**
      * Converts a fractional digit array (0.abcd...) from one base to another.
      * 
@@ -32,16 +53,372 @@ public class BaseTranslator {
         	}
         }
         int[] result = new int[precisionB];
-        int[] digitsCopy = digits.clone();
-        for (int i = 0; i < precisionB; i++) {
-        	int carry = 0;
-        	for (int j = digits.length -1; j >= 0; j--) {
-        		int x = digitsCopy[j]*baseB + carry;
-        		digitsCopy[j] = x % baseA;
-        		carry = x / baseA;
-        	}
-        	result[i] = carry;
+        convertBase(digitArray(digits), digits.length, baseA,
+                    digitArray(result), baseB, precisionB);
+        return result;
+    }
+
+    /**
+     * Converts a fractional digit array from one base to another like
+     * convertBase, but produces the output digits one at a time instead of as
+     * an array. The first digit is available after a single pass over the
+     * input, and the iterator only holds a packed copy of the input, however
+     * many digits are taken from it.
+     * 
+     * @param digits The input array to translate. This array is not mutated.
+     * @param baseA The base that the input array is expressed in. Requires baseA >=  2.
+     * @param baseB The base that the input array is translated into. Requires baseB >= 2.
+     * @param precisionB The number of digits the iterator should produce.
+     *                   Requires precisionB >= 0.
+     * @return An iterator over precisionB digits in baseB, most significant
+     *         first.
+     * @throws IllegalArgumentException if any value in digits is not a baseA digit, i.e.
+     *            digits[i] < 0 or digits[i] >= baseA.
+     */
+    public static PrimitiveIterator.OfInt convertBaseStream(int[] digits, int baseA,
+            int baseB, int precisionB) throws IllegalArgumentException {
+        for (int i = 0; i < digits.length; i++) {
+            if (digits[i] < 0 || digits[i] >= baseA) {
+                throw new IllegalArgumentException("All elements of the digits array must be valid baseA digits.");
+            }
         }
+        return new BaseConversionIterator(digits, baseA, baseB, precisionB);
+    }
+
+    /**
+     * Converts a fractional digit array from one base to another like
+     * convertBase, saving progress to checkpoint now and then. If checkpoint
+     * holds the progress of an earlier call with the same arguments that
+     * didn't finish, conversion carries on from there. The checkpoint is
+     * deleted once all digits are converted.
+     * 
+     * Progress is the working limbs of the streaming conversion used by
+     * convertBaseStream, with a SHA-256 digest of the input to recognise it
+     * by. The digits produced so far are appended, packed, to a data file
+     * next to checkpoint as they are saved. This is meant for conversions
+     * too long to risk losing, not for speed.
+     * 
+     * @param digits The input array to translate. This array is not mutated.
+     * @param baseA The base that the input array is expressed in. Requires baseA >=  2.
+     * @param baseB The base that the input array is translated into. Requires baseB >= 2.
+     * @param precisionB The number of digits of precision the output should
+     *                   have.  Requires precisionB >= 0.
+     * @param checkpoint The file to save progress to and resume from.
+     * @return An array of size precisionB expressing digits in baseB.
+     * @throws IllegalArgumentException if any value in digits is not a baseA digit, i.e.
+     *            digits[i] < 0 or digits[i] >= baseA.
+     * @throws IOException if checkpoint cannot be read or written.
+     */
+    public static int[] convertBase(int[] digits, int baseA, int baseB,
+            int precisionB, File checkpoint) throws IllegalArgumentException, IOException {
+        for (int i = 0; i < digits.length; i++) {
+            if (digits[i] < 0 || digits[i] >= baseA) {
+                throw new IllegalArgumentException("All elements of the digits array must be valid baseA digits.");
+            }
+        }
+        return convertBase(digits, baseA, baseB, precisionB,
+                new CheckpointFile(checkpoint, CheckpointFile.BASE_CONVERSION),
+                CHECKPOINT_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Like convertBase(int[], int, int, int, File), saving progress to
+     * checkpoint after any digit produced at least intervalMillis after the
+     * last save. Requires valid baseA digits.
+     */
+    static int[] convertBase(final int[] digits, final int baseA, final int baseB,
+            final int precisionB, CheckpointFile checkpoint, long intervalMillis)
+            throws IOException {
+        final BaseConversionIterator output =
+                new BaseConversionIterator(digits, baseA, baseB, precisionB);
+        final int[] result = new int[precisionB];
+        final byte[] inputDigest = digest(digits);
+        int bytesPerDigit = (baseB <= 0x100) ? 1 : (baseB <= 0x10000) ? 2 : 4;
+        // the digits produced so far are appended to the data file; the
+        // checkpoint holds the iterator state and how many digits are valid
+        RandomAccessFile data = new RandomAccessFile(checkpoint.dataFile(), "rw");
+        try {
+            DataInputStream in = checkpoint.load();
+            if (in != null) {
+                try {
+                    byte[] savedDigest = new byte[inputDigest.length];
+                    if (in.readInt() == baseA && in.readInt() == baseB
+                            && in.readInt() == precisionB && in.readInt() == digits.length) {
+                        in.readFully(savedDigest);
+                        if (MessageDigest.isEqual(savedDigest, inputDigest)
+                                && data.length() >= (long) in.readInt() * bytesPerDigit) {
+                            output.readState(in);
+                        }
+                    }
+                } finally {
+                    in.close();
+                }
+            }
+            int saved = output.position();
+            data.setLength((long) saved * bytesPerDigit);
+            byte[] savedDigits = new byte[saved * bytesPerDigit];
+            data.readFully(savedDigits);
+            DataInputStream savedIn =
+                    new DataInputStream(new ByteArrayInputStream(savedDigits));
+            for (int i = 0; i < saved; i++) {
+                result[i] = readDigit(savedIn, bytesPerDigit);
+            }
+
+            long lastSave = System.currentTimeMillis();
+            while (output.hasNext()) {
+                result[output.position()] = output.nextInt();
+                if (System.currentTimeMillis() - lastSave >= intervalMillis) {
+                    // append only the digits produced since the last save
+                    int position = output.position();
+                    ByteArrayOutputStream newDigits =
+                            new ByteArrayOutputStream((position - saved) * bytesPerDigit);
+                    DataOutputStream newOut = new DataOutputStream(newDigits);
+                    for (int i = saved; i < position; i++) {
+                        writeDigit(newOut, result[i], bytesPerDigit);
+                    }
+                    data.write(newDigits.toByteArray());
+                    data.getFD().sync();
+                    saved = position;
+                    checkpoint.save(new CheckpointFile.Contents() {
+                        public void writeTo(DataOutputStream out) throws IOException {
+                            out.writeInt(baseA);
+                            out.writeInt(baseB);
+                            out.writeInt(precisionB);
+                            out.writeInt(digits.length);
+                            out.write(inputDigest);
+                            out.writeInt(output.position());
+                            output.writeState(out);
+                        }
+                    });
+                    lastSave = System.currentTimeMillis();
+                }
+            }
+        } finally {
+            data.close();
+        }
+        checkpoint.delete();
         return result;
     }
+
+    /**
+     * Returns the SHA-256 digest of digits, each written as 4 bytes.
+     */
+    private static byte[] digest(int[] digits) {
+        MessageDigest sha;
+        try {
+            sha = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new AssertionError(e);
+        }
+        byte[] bytes = new byte[4 * 1024];
+        for (int i = 0; i < digits.length; i += 1024) {
+            int n = Math.min(1024, digits.length - i);
+            for (int j = 0; j < n; j++) {
+                int digit = digits[i + j];
+                bytes[4 * j] = (byte) (digit >>> 24);
+                bytes[4 * j + 1] = (byte) (digit >>> 16);
+                bytes[4 * j + 2] = (byte) (digit >>> 8);
+                bytes[4 * j + 3] = (byte) digit;
+            }
+            sha.update(bytes, 0, 4 * n);
+        }
+        return sha.digest();
+    }
+
+    private static void writeDigit(DataOutputStream out, int digit, int bytesPerDigit)
+            throws IOException {
+        if (bytesPerDigit == 1) {
+            out.writeByte(digit);
+        } else if (bytesPerDigit == 2) {
+            out.writeShort(digit);
+        } else {
+            out.writeInt(digit);
+        }
+    }
+
+    private static int readDigit(DataInputStream in, int bytesPerDigit) throws IOException {
+        if (bytesPerDigit == 1) {
+            return in.readUnsignedByte();
+        } else if (bytesPerDigit == 2) {
+            return in.readUnsignedShort();
+        }
+        return in.readInt();
+    }
+
+    /**
+     * Like convertBase(int[], int, int, int), for packed digits. The input
+     * base is digits.base().
+     * 
+     * @param digits The input digits to translate. This object is not mutated.
+     * @param baseB The base that the input is translated into. Requires
+     *              2 <= baseB <= 256.
+     * @param precisionB The number of digits of precision the output should
+     *                   have.  Requires precisionB >= 0.
+     * @return A buffer of precisionB digits in baseB.
+     */
+    public static DigitBuffer convertBase(DigitBuffer digits, int baseB, int precisionB) {
+        DigitBuffer result = new DigitBuffer(baseB, precisionB);
+        convertBase(digitArray(digits), digits.length(), digits.base(),
+                    digitArray(result), baseB, precisionB);
+        return result;
+    }
+
+    /**
+     * Converts digits[0..length) from baseA to baseB, writing precisionB
+     * digits into result[0..precisionB), with whichever algorithm is faster
+     * for the sizes. Requires valid baseA digits.
+     */
+    private static void convertBase(DigitArray digits, int length, int baseA,
+                                    DigitArray result, int baseB, int precisionB) {
+        if ((long) length * precisionB > DIVIDE_AND_CONQUER_THRESHOLD) {
+            convertBaseDivideAndConquer(digits, length, baseA, result, baseB, precisionB);
+        } else {
+            convertBaseQuadratic(digits, length, baseA, result, baseB, precisionB);
+        }
+    }
+
+    /**
+     * Converts digits[0..length) from baseA to baseB, writing precisionB
+     * digits into result[0..precisionB), by repeatedly multiplying the whole
+     * input by baseB and taking the carry out of the top. Takes
+     * O(length * precisionB) time. Requires valid baseA digits.
+     */
+    static void convertBaseQuadratic(DigitArray digits, int length, int baseA,
+                                     DigitArray result, int baseB, int precisionB) {
+        PrimitiveIterator.OfInt output =
+                new BaseConversionIterator(digits, length, baseA, baseB, precisionB);
+        for (int i = 0; i < precisionB; i++) {
+            result.set(i, output.nextInt());
+        }
+    }
+
+    /**
+     * Converts digits from baseA to baseB with the same result as
+     * convertBaseQuadratic, in subquadratic time.
+     * 
+     * The input is the integer N = digits[0..length) read in baseA, over
+     * baseA^length. The output is floor(N * baseB^precisionB / baseA^length),
+     * written out in baseB. Both the packing of the input into N and the
+     * unpacking of the output split the digits in two recursively, using
+     * precomputed powers base^(2^k), so all the work is in large BigInteger
+     * multiplications and divisions. Requires valid baseA digits.
+     */
+    static void convertBaseDivideAndConquer(DigitArray digits, int length, int baseA,
+                                            DigitArray result, int baseB, int precisionB) {
+        List<BigInteger> powersA = powerTable(baseA, length);
+        BigInteger numerator = packDigits(digits, 0, length, baseA,
+                                          leafLength(baseA), powersA);
+        BigInteger scaled = numerator
+                .multiply(BigInteger.valueOf(baseB).pow(precisionB))
+                .divide(BigInteger.valueOf(baseA).pow(length));
+
+        List<BigInteger> powersB = powerTable(baseB, precisionB);
+        unpackDigits(scaled, result, 0, precisionB, baseB, leafLength(baseB), powersB);
+    }
+
+    /**
+     * Returns the list base^1, base^2, base^4, ..., base^(2^k) for every k
+     * with 2^k < length.
+     */
+    private static List<BigInteger> powerTable(int base, int length) {
+        List<BigInteger> powers = new ArrayList<BigInteger>();
+        BigInteger power = BigInteger.valueOf(base);
+        for (long size = 1; size < length; size *= 2) {
+            powers.add(power);
+            power = power.multiply(power);
+        }
+        return powers;
+    }
+
+    /**
+     * Returns the largest number of base digits whose value always fits in a
+     * long.
+     */
+    private static int leafLength(int base) {
+        int length = 1;
+        long power = base;
+        while (power <= Long.MAX_VALUE / base) {
+            power *= base;
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Random access to the digits of an int[] or a DigitBuffer, so that the
+     * conversions serve both.
+     */
+    interface DigitArray {
+        int get(int i);
+        void set(int i, int digit);
+    }
+
+    static DigitArray digitArray(final int[] digits) {
+        return new DigitArray() {
+            public int get(int i) {
+                return digits[i];
+            }
+
+            public void set(int i, int digit) {
+                digits[i] = digit;
+            }
+        };
+    }
+
+    static DigitArray digitArray(final DigitBuffer digits) {
+        return new DigitArray() {
+            public int get(int i) {
+                return digits.get(i);
+            }
+
+            public void set(int i, int digit) {
+                digits.set(i, digit);
+            }
+        };
+    }
+
+    /**
+     * Returns the integer spelled by digits[from..to) in base.
+     */
+    private static BigInteger packDigits(DigitArray digits, int from, int to, int base,
+                                         int leaf, List<BigInteger> powers) {
+        int length = to - from;
+        if (length <= leaf) {
+            long value = 0;
+            for (int i = from; i < to; i++) {
+                value = value * base + digits.get(i);
+            }
+            return BigInteger.valueOf(value);
+        }
+        // split off the largest power of two digits smaller than length
+        int k = 31 - Integer.numberOfLeadingZeros(length - 1);
+        int mid = to - (1 << k);
+        BigInteger high = packDigits(digits, from, mid, base, leaf, powers);
+        BigInteger low = packDigits(digits, mid, to, base, leaf, powers);
+        return high.multiply(powers.get(k)).add(low);
+    }
+
+    /**
+     * Writes value into out[offset..offset+length) as length base digits,
+     * most significant first. Requires 0 <= value < base^length.
+     */
+    private static void unpackDigits(BigInteger value, DigitArray out, int offset,
+                                     int length, int base, int leaf,
+                                     List<BigInteger> powers) {
+        if (length <= leaf) {
+            long v = value.longValue();
+            for (int i = offset + length - 1; i >= offset; i--) {
+                out.set(i, (int) (v % base));
+                v /= base;
+            }
+            return;
+        }
+        int k = 31 - Integer.numberOfLeadingZeros(length - 1);
+        int lowLength = 1 << k;
+        BigInteger[] qr = value.divideAndRemainder(powers.get(k));
+        unpackDigits(qr[0], out, offset, length - lowLength, base, leaf, powers);
+        unpackDigits(qr[1], out, offset + length - lowLength, lowLength, base,
+                     leaf, powers);
+    }
 }
@@ -2,6 +2,12 @@ package piwords;
 
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
 import org.junit.Test;
 
 public class BaseTranslatorTest {
@@ -58,4 +64,209 @@ public class BaseTranslatorTest {
     	}
     	assertEquals(true, threwException);
     }
+    
+    @Test
+    public void divideAndConquerTest() {
+        //test that both algorithms agree on random inputs in assorted bases
+        Random random = new Random(6005);
+        int[][] bases = {{16, 26}, {16, 100}, {2, 10}, {7, 4}, {35, 3}, {1000, 99991}};
+        for (int[] b : bases) {
+            for (int length : new int[]{0, 1, 5, 40, 333}) {
+                int[] input = new int[length];
+                for (int i = 0; i < length; i++) {
+                    input[i] = random.nextInt(b[0]);
+                }
+                for (int precision : new int[]{0, 1, 17, 300}) {
+                    assertArrayEquals(
+                            quadratic(input, b[0], b[1], precision),
+                            divideAndConquer(input, b[0], b[1], precision));
+                }
+            }
+        }
+        
+        //test an input large enough for convertBase to pick divide-and-conquer
+        int[] input = new int[1500];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = random.nextInt(16);
+        }
+        int[] unmodifiedInput = input.clone();
+        assertArrayEquals(quadratic(input, 16, 26, 1500),
+                          BaseTranslator.convertBase(input, 16, 26, 1500));
+        assertArrayEquals(unmodifiedInput, input);
+    }
+    
+    @Test
+    public void convertBaseStreamTest() {
+        //test that the stream produces the same digits as convertBase
+        int[] input = {11, 31, 25};
+        PrimitiveIterator.OfInt output = BaseTranslator.convertBaseStream(input, 35, 3, 10);
+        int[] expectedOutput = BaseTranslator.convertBase(input, 35, 3, 10);
+        for (int i = 0; i < expectedOutput.length; i++) {
+            assertEquals(true, output.hasNext());
+            assertEquals(expectedOutput[i], output.nextInt());
+        }
+        assertEquals(false, output.hasNext());
+        boolean threwException = false;
+        try {
+            output.nextInt();
+        } catch (NoSuchElementException e) {
+            threwException = true;
+        }
+        assertEquals(true, threwException);
+        assertArrayEquals(new int[]{11, 31, 25}, input);
+        
+        //test an input that runs out of nonzero digits
+        output = BaseTranslator.convertBaseStream(new int[]{0, 1}, 2, 10, 4);
+        assertEquals(2, output.nextInt());
+        assertEquals(5, output.nextInt());
+        assertEquals(0, output.nextInt());
+        assertEquals(0, output.nextInt());
+        
+        //test that illegal argument exception is working
+        threwException = false;
+        try {
+            BaseTranslator.convertBaseStream(new int[]{2, 3, 10}, 8, 3, 3);
+        } catch (IllegalArgumentException e) {
+            threwException = true;
+        }
+        assertEquals(true, threwException);
+    }
+    
+    @Test
+    public void convertDigitBufferTest() {
+        //test that packed conversion agrees with the int[] version on both algorithms
+        Random random = new Random(6005);
+        for (int length : new int[]{0, 3, 200, 1500}) {
+            int[] input = new int[length];
+            for (int i = 0; i < length; i++) {
+                input[i] = random.nextInt(16);
+            }
+            for (int baseB : new int[]{2, 26, 100, 256}) {
+                DigitBuffer output = BaseTranslator.convertBase(
+                        DigitBuffer.fromArray(input, 16), baseB, length);
+                assertEquals(baseB, output.base());
+                assertArrayEquals(BaseTranslator.convertBase(input, 16, baseB, length),
+                                  output.toArray());
+            }
+        }
+        //test a byte-packed input
+        DigitBuffer input = DigitBuffer.fromArray(new int[]{11, 31, 25}, 35);
+        assertArrayEquals(new int[]{1,0,0,0,1,1,2,2, 2, 1},
+                          BaseTranslator.convertBase(input, 3, 10).toArray());
+    }
+
+    @Test
+    public void checkpointResumeTest() throws IOException {
+        File checkpointFile = File.createTempFile("convert", ".checkpoint");
+        checkpointFile.delete();
+        int[] piHexDigits = PiGenerator.computePiInHex(200);
+        try {
+            //test a run that dies after saving its third checkpoint
+            CheckpointFile dying = new CheckpointFile(checkpointFile,
+                                                      CheckpointFile.BASE_CONVERSION) {
+                private int saves = 0;
+
+                @Override
+                void save(Contents contents) throws IOException {
+                    super.save(contents);
+                    if (++saves == 3) {
+                        throw new IOException("process died");
+                    }
+                }
+            };
+            boolean threwException = false;
+            try {
+                BaseTranslator.convertBase(piHexDigits, 16, 26, 200, dying, 0);
+            } catch (IOException e) {
+                threwException = true;
+            }
+            assertEquals(true, threwException);
+            assertEquals(true, checkpointFile.exists());
+
+            //test that a checkpoint for other arguments is not resumed from
+            assertArrayEquals(BaseTranslator.convertBase(piHexDigits, 16, 10, 200),
+                    BaseTranslator.convertBase(piHexDigits, 16, 10, 200,
+                            new CheckpointFile(checkpointFile, CheckpointFile.BASE_CONVERSION),
+                            Long.MAX_VALUE));
+            assertEquals(false, checkpointFile.exists());
+        } finally {
+            checkpointFile.delete();
+        }
+    }
+
+    @Test
+    public void checkpointResumeSameArgumentsTest() throws IOException {
+        File checkpointFile = File.createTempFile("convert", ".checkpoint");
+        checkpointFile.delete();
+        int[] piHexDigits = PiGenerator.computePiInHex(200);
+        try {
+            CheckpointFile dying = new CheckpointFile(checkpointFile,
+                                                      CheckpointFile.BASE_CONVERSION) {
+                @Override
+                void save(Contents contents) throws IOException {
+                    super.save(contents);
+                    throw new IOException("process died");
+                }
+            };
+            try {
+                BaseTranslator.convertBase(piHexDigits, 16, 26, 200, dying, 0);
+            } catch (IOException e) {
+                //expected, the checkpoint is left behind
+            }
+            //test that resuming gives the same digits and removes the checkpoint
+            assertArrayEquals(BaseTranslator.convertBase(piHexDigits, 16, 26, 200),
+                    BaseTranslator.convertBase(piHexDigits, 16, 26, 200, checkpointFile));
+            assertEquals(false, checkpointFile.exists());
+        } finally {
+            checkpointFile.delete();
+        }
+    }
+
+    @Test
+    public void checkpointOtherInputSameHashTest() throws IOException {
+        File checkpointFile = File.createTempFile("convert", ".checkpoint");
+        checkpointFile.delete();
+        //{1, 0, ...} and {0, 31, ...} have the same Arrays.hashCode
+        int[] first = new int[40];
+        int[] second = new int[40];
+        first[0] = 1;
+        second[1] = 31;
+        try {
+            CheckpointFile dying = new CheckpointFile(checkpointFile,
+                                                      CheckpointFile.BASE_CONVERSION) {
+                @Override
+                void save(Contents contents) throws IOException {
+                    super.save(contents);
+                    throw new IOException("process died");
+                }
+            };
+            try {
+                BaseTranslator.convertBase(first, 32, 10, 60, dying, 0);
+            } catch (IOException e) {
+                //expected, the checkpoint is left behind
+            }
+            assertEquals(true, checkpointFile.exists());
+            //test that the other input is not resumed from the checkpoint
+            assertArrayEquals(BaseTranslator.convertBase(second, 32, 10, 60),
+                    BaseTranslator.convertBase(second, 32, 10, 60, checkpointFile));
+            assertEquals(false, checkpointFile.exists());
+        } finally {
+            checkpointFile.delete();
+            new File(checkpointFile.getPath() + ".data").delete();
+        }
+    }
+
+    private static int[] quadratic(int[] digits, int baseA, int baseB, int precisionB) {
+        int[] result = new int[precisionB];
+        BaseTranslator.convertBaseQuadratic(BaseTranslator.digitArray(digits), digits.length,
+                baseA, BaseTranslator.digitArray(result), baseB, precisionB);
+        return result;
+    }
+
+    private static int[] divideAndConquer(int[] digits, int baseA, int baseB, int precisionB) {
+        int[] result = new int[precisionB];
+        BaseTranslator.convertBaseDivideAndConquer(BaseTranslator.digitArray(digits),
+                digits.length, baseA, BaseTranslator.digitArray(result), baseB, precisionB);
+        return result;
+    }
 }
@@ -0,0 +1,33 @@
+package piwords;
+
+/**
+ * BbpPiEngine computes each digit of pi independently with the
+ * Bailey-Borwein-Plouffe formula, as implemented by PiGenerator.
+ * 
+ * Any digit can be computed without the ones before it, but producing the
+ * first n digits takes O(n^2 log n) time, so this engine is only the better
+ * choice for short prefixes.
+ */
+public class BbpPiEngine implements PiEngine {
+    private final int parallelism;
+
+    /**
+     * Make an engine that computes digits on up to parallelism threads.
+     * 
+     * @param parallelism Requires parallelism >= 1.
+     */
+    public BbpPiEngine(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public int[] computePiInHex(int precision) {
+        return PiGenerator.computePiHexRange(1, precision, parallelism);
+    }
+
+    @Override
+    public DigitBuffer computePiInHexPacked(int precision) {
+        // BBP is only selected for short prefixes, so the int[] is small
+        return DigitBuffer.fromArray(computePiInHex(precision), 16);
+    }
+}
@@ -0,0 +1,123 @@
+package piwords;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * CheckpointFile saves the partial state of a long computation so that it
+ * can be resumed after the process dies.
+ * 
+ * A checkpoint is written to a temporary file next to the real one, synced,
+ * and then renamed over it, so the file always holds either the previous
+ * checkpoint or the new one, never a mix. Every checkpoint starts with a
+ * magic number and a kind, which says what computation it belongs to.
+ * 
+ * Output that only grows can instead be appended to a data file kept next
+ * to the checkpoint, which then only records how much of it is valid, so
+ * that saving doesn't rewrite all the output produced so far.
+ */
+class CheckpointFile {
+    private static final int MAGIC = 0x5049434B; // "PICK"
+
+    // kinds of checkpoint
+    static final int PI_DIGITS = 1;
+    static final int BASE_CONVERSION = 2;
+
+    /**
+     * Contents writes the state of a computation to a checkpoint.
+     */
+    interface Contents {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    private final File file;
+    private final int kind;
+
+    /**
+     * Make a checkpoint of the given kind, kept in file.
+     */
+    CheckpointFile(File file, int kind) {
+        this.file = file;
+        this.kind = kind;
+    }
+
+    /**
+     * Replace the checkpoint with contents.
+     * 
+     * @throws IOException if it cannot be written; the previous checkpoint,
+     *         if any, is then left in place.
+     */
+    void save(Contents contents) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        FileOutputStream fileOut = new FileOutputStream(temp);
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut));
+            out.writeInt(MAGIC);
+            out.writeInt(kind);
+            contents.writeTo(out);
+            out.flush();
+            fileOut.getFD().sync();
+        } finally {
+            fileOut.close();
+        }
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                       StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Open the checkpoint for reading, positioned after its magic number
+     * and kind. The caller must close the stream.
+     * 
+     * @return the stream, or null if there is no checkpoint of this kind.
+     * @throws IOException if the checkpoint exists but cannot be read.
+     */
+    DataInputStream load() throws IOException {
+        DataInputStream in;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+        boolean ok = false;
+        try {
+            ok = file.length() >= 8 && in.readInt() == MAGIC && in.readInt() == kind;
+        } finally {
+            if (!ok) {
+                in.close();
+            }
+        }
+        return ok ? in : null;
+    }
+
+    /**
+     * @return the data file that goes with this checkpoint. It is up to the
+     *         caller to write it, and to sync it before saving a checkpoint
+     *         that relies on it.
+     */
+    File dataFile() {
+        return new File(file.getPath() + ".data");
+    }
+
+    /**
+     * Remove the checkpoint and its data file, once the computation is
+     * finished.
+     */
+    void delete() {
+        file.delete();
+        dataFile().delete();
+    }
+}
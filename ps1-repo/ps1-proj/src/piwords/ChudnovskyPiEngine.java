@@ -0,0 +1,213 @@
+package piwords;
+
+import java.math.BigInteger;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * ChudnovskyPiEngine computes all the requested digits of pi at once from
+ * the Chudnovsky series,
+ * 
+ *   1/pi = 12 sum_k (-1)^k (6k)! (13591409 + 545140134k)
+ *                          / ((3k)! (k!)^3 640320^(3k + 3/2)),
+ * 
+ * summed exactly with binary splitting. Each term adds about 47 bits, and
+ * with subquadratic BigInteger multiplication the whole computation takes
+ * roughly O(n log^2 n) time for n digits. The two halves of each split
+ * are summed in parallel.
+ */
+public class ChudnovskyPiEngine implements PiEngine {
+    // bits of pi gained per term of the series, log2(640320^3 / 1728)
+    private static final double BITS_PER_TERM = 47.11;
+    // 640320^3 / 24
+    private static final BigInteger C3_OVER_24 = BigInteger.valueOf(10939058860032000L);
+    // ranges of this many terms or fewer are summed on a single thread
+    private static final int SEQUENTIAL_TERMS = 64;
+    // hex digits computed beyond the requested ones, to absorb rounding
+    private static final int GUARD_DIGITS = 8;
+
+    private final int parallelism;
+
+    /**
+     * Make an engine that sums the series on up to parallelism threads.
+     * 
+     * @param parallelism Requires parallelism >= 1.
+     */
+    public ChudnovskyPiEngine(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public int[] computePiInHex(int precision) {
+        BigInteger value = computeTruncatedPi(precision);
+        byte[] bytes = value.toByteArray();
+        int[] digits = new int[precision];
+        for (int i = 0; i < precision; i++) {
+            digits[i] = fractionalHexDigit(bytes, precision, i);
+        }
+        return digits;
+    }
+
+    @Override
+    public DigitBuffer computePiInHexPacked(int precision) {
+        BigInteger value = computeTruncatedPi(precision);
+        byte[] bytes = value.toByteArray();
+        DigitBuffer digits = new DigitBuffer(16, precision);
+        for (int i = 0; i < precision; i++) {
+            digits.set(i, fractionalHexDigit(bytes, precision, i));
+        }
+        return digits;
+    }
+
+    /**
+     * Returns floor(pi * 16^precision).
+     */
+    private BigInteger computeTruncatedPi(int precision) {
+        int guard = GUARD_DIGITS;
+        while (true) {
+            int bits = 4 * (precision + guard);
+            BigInteger scaledPi = computeScaledPi(bits);
+            // the guard digits are only off by a few units in the last place,
+            // so unless they are all 0s or all Fs the digits above are exact
+            BigInteger guardDigits = scaledPi.subtract(
+                    scaledPi.shiftRight(4 * guard).shiftLeft(4 * guard));
+            int margin = 4 * guard - 16;
+            if (guardDigits.bitLength() > margin
+                    && guardDigits.add(BigInteger.ONE.shiftLeft(margin))
+                                  .bitLength() <= 4 * guard) {
+                return scaledPi.shiftRight(4 * guard);
+            }
+            guard *= 2;
+        }
+    }
+
+    /**
+     * Returns pi * 2^bits, to within a few units.
+     */
+    private BigInteger computeScaledPi(int bits) {
+        int terms = (int) (bits / BITS_PER_TERM) + 2;
+        BigInteger[] pqt;
+        if (parallelism == 1) {
+            // no pool, so all the work stays on the calling thread
+            pqt = SplitTask.split(0, terms);
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pqt = pool.invoke(new SplitTask(0, terms));
+            } finally {
+                pool.shutdown();
+            }
+        }
+        // pi = 426880 sqrt(10005) Q / T
+        BigInteger sqrt10005 = sqrt(BigInteger.valueOf(10005).shiftLeft(2 * bits));
+        return sqrt10005.multiply(BigInteger.valueOf(426880))
+                        .multiply(pqt[1]).divide(pqt[2]);
+    }
+
+    /**
+     * Returns digit i of the last precision hex digits of the big-endian
+     * bytes of a number.
+     */
+    private static int fractionalHexDigit(byte[] bytes, int precision, int i) {
+        // the digit fromEnd places from the end lives in byte fromEnd / 2
+        // from the end
+        int fromEnd = precision - 1 - i;
+        int b = bytes[bytes.length - 1 - fromEnd / 2];
+        return (fromEnd % 2 == 0) ? b & 0xF : (b >> 4) & 0xF;
+    }
+
+    /**
+     * Computes {P(a, b), Q(a, b), T(a, b)} for the terms a <= k < b:
+     * 
+     *   P(k, k+1) = (6k-5)(2k-1)(6k-1), Q(k, k+1) = k^3 640320^3 / 24,
+     *   T(k, k+1) = (-1)^k P(k, k+1) (13591409 + 545140134k),
+     * 
+     * except P(0, 1) = Q(0, 1) = 1, and for a < m < b
+     * 
+     *   P(a, b) = P(a, m) P(m, b), Q(a, b) = Q(a, m) Q(m, b),
+     *   T(a, b) = T(a, m) Q(m, b) + P(a, m) T(m, b).
+     */
+    private static class SplitTask extends RecursiveTask<BigInteger[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final int a;
+        private final int b;
+
+        SplitTask(int a, int b) {
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        protected BigInteger[] compute() {
+            if (b - a <= SEQUENTIAL_TERMS) {
+                return split(a, b);
+            }
+            int m = (a + b) >>> 1;
+            SplitTask left = new SplitTask(a, m);
+            left.fork();
+            BigInteger[] right = new SplitTask(m, b).compute();
+            return merge(left.join(), right);
+        }
+
+        private static BigInteger[] split(int a, int b) {
+            if (b - a == 1) {
+                return term(a);
+            }
+            int m = (a + b) >>> 1;
+            return merge(split(a, m), split(m, b));
+        }
+
+        private static BigInteger[] term(int k) {
+            if (k == 0) {
+                return new BigInteger[]{BigInteger.ONE, BigInteger.ONE,
+                                        BigInteger.valueOf(13591409)};
+            }
+            BigInteger big = BigInteger.valueOf(k);
+            BigInteger p = BigInteger.valueOf(6L * k - 5)
+                    .multiply(BigInteger.valueOf(2L * k - 1))
+                    .multiply(BigInteger.valueOf(6L * k - 1));
+            BigInteger q = big.multiply(big).multiply(big).multiply(C3_OVER_24);
+            BigInteger t = p.multiply(BigInteger.valueOf(13591409)
+                    .add(BigInteger.valueOf(545140134).multiply(big)));
+            return new BigInteger[]{p, q, (k % 2 == 0) ? t : t.negate()};
+        }
+
+        private static BigInteger[] merge(BigInteger[] left, BigInteger[] right) {
+            return new BigInteger[]{
+                    left[0].multiply(right[0]),
+                    left[1].multiply(right[1]),
+                    left[2].multiply(right[1]).add(left[0].multiply(right[2]))};
+        }
+    }
+
+    /**
+     * Returns floor(sqrt(n)) for n >= 0. The square root of n with its low
+     * half of bits dropped gives a starting point good to about a quarter of
+     * the bits, from which Newton's method needs only a few steps.
+     */
+    static BigInteger sqrt(BigInteger n) {
+        if (n.bitLength() <= 52) {
+            long v = n.longValue();
+            long r = (long) Math.sqrt((double) v);
+            while (r * r > v) {
+                r--;
+            }
+            while ((r + 1) * (r + 1) <= v) {
+                r++;
+            }
+            return BigInteger.valueOf(r);
+        }
+        int k = n.bitLength() / 4;
+        // (sqrt(n >> 2k) + 1) << k is above sqrt(n), and Newton's method
+        // decreases steadily from above to floor(sqrt(n))
+        BigInteger x = sqrt(n.shiftRight(2 * k)).add(BigInteger.ONE).shiftLeft(k);
+        while (true) {
+            BigInteger y = x.add(n.divide(x)).shiftRight(1);
+            if (y.compareTo(x) >= 0) {
+                return x;
+            }
+            x = y;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package piwords;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * CompactDictionary is a sorted word list stored front-coded in a file and
+ * memory-mapped for reading, so that a dictionary of hundreds of thousands
+ * of words costs a few MB of page cache instead of a String per word.
+ * 
+ * Each word is stored as the length of the prefix it shares with the word
+ * before it, the length of the rest, and the rest, one byte per char. Every
+ * RESTART_INTERVAL-th word shares nothing, and the file starts with the
+ * offsets of those words, so that any word can be decoded without starting
+ * from the beginning. Words are numbered from 0 in sorted order.
+ * 
+ * File layout: magic number, format version, word count and restart
+ * interval as ints, then the restart offsets as ints, then the words.
+ * 
+ * Words must be at most 255 chars long, with every char below 256.
+ */
+public class CompactDictionary implements Closeable {
+    private static final int MAGIC = 0x50495744; // "PIWD"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int RESTART_INTERVAL = 16;
+    private static final int MAX_WORD_LENGTH = 255;
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final int size;
+
+    // rep invariant: buffer holds a file in the layout above with size words
+
+    /**
+     * Write the words of a text file, one per line, to a dictionary file.
+     * 
+     * @param wordFilePath A text file of words separated by new lines.
+     * @param dictionaryFile The file to write the dictionary to.
+     * @throws IOException if either file cannot be read or written, or a
+     *         word is too long or has a char that doesn't fit in a byte.
+     */
+    public static void build(String wordFilePath, File dictionaryFile) throws IOException {
+        BufferedReader reader = new BufferedReader(new FileReader(wordFilePath));
+        List<String> words = new ArrayList<String>();
+        try {
+            String word = reader.readLine();
+            while (word != null) {
+                words.add(word);
+                word = reader.readLine();
+            }
+        } finally {
+            reader.close();
+        }
+        Collections.sort(words);
+
+        int numRestarts = (words.size() + RESTART_INTERVAL - 1) / RESTART_INTERVAL;
+        int[] restarts = new int[numRestarts];
+        byte[] data = encode(words, restarts, HEADER_SIZE + 4 * numRestarts);
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(dictionaryFile)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(words.size());
+            out.writeInt(RESTART_INTERVAL);
+            for (int offset : restarts) {
+                out.writeInt(offset);
+            }
+            out.write(data);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Returns the front-coded words, filling in restarts with the file
+     * offset of every RESTART_INTERVAL-th word, given that the words start
+     * at dataOffset.
+     */
+    private static byte[] encode(List<String> words, int[] restarts, int dataOffset)
+            throws IOException {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        String previous = "";
+        for (int id = 0; id < words.size(); id++) {
+            String word = words.get(id);
+            if (word.length() > MAX_WORD_LENGTH) {
+                throw new IOException("Word too long for a compact dictionary: " + word);
+            }
+            int shared = 0;
+            if (id % RESTART_INTERVAL == 0) {
+                restarts[id / RESTART_INTERVAL] = dataOffset + data.size();
+            } else {
+                while (shared < previous.length() && shared < word.length()
+                       && previous.charAt(shared) == word.charAt(shared)) {
+                    shared++;
+                }
+            }
+            data.write(shared);
+            data.write(word.length() - shared);
+            for (int i = shared; i < word.length(); i++) {
+                char c = word.charAt(i);
+                if (c > 0xFF) {
+                    throw new IOException("Word has a char that doesn't fit in a byte: " + word);
+                }
+                data.write(c);
+            }
+            previous = word;
+        }
+        return data.toByteArray();
+    }
+
+    /**
+     * Open a dictionary written by build.
+     * 
+     * @param dictionaryFile The file to open.
+     * @throws IOException if the file cannot be read or is not a dictionary.
+     */
+    public CompactDictionary(File dictionaryFile) throws IOException {
+        file = new RandomAccessFile(dictionaryFile, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Not a compact dictionary: " + dictionaryFile);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            size = buffer.getInt(8);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                    || buffer.getInt(12) != RESTART_INTERVAL || size < 0
+                    || HEADER_SIZE + 4L * numRestarts() > channel.size()) {
+                throw new IOException("Not a compact dictionary: " + dictionaryFile);
+            }
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of words in the dictionary.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param id Requires 0 <= id < size().
+     * @return the word with the given id.
+     */
+    public String word(int id) {
+        Cursor cursor = new Cursor(id / RESTART_INTERVAL * RESTART_INTERVAL);
+        for (int i = id % RESTART_INTERVAL; i >= 0; i--) {
+            cursor.next();
+        }
+        return cursor.toString();
+    }
+
+    /**
+     * @return a cursor before the first word.
+     */
+    public Cursor cursor() {
+        return new Cursor(0);
+    }
+
+    /**
+     * Close the underlying file. The dictionary must not be used afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private int numRestarts() {
+        return (size + RESTART_INTERVAL - 1) / RESTART_INTERVAL;
+    }
+
+    /**
+     * A Cursor walks the words of the dictionary in order, decoding each
+     * into the same char buffer. It is the current word as a CharSequence,
+     * until next is called again.
+     */
+    public class Cursor implements CharSequence {
+        private final char[] chars = new char[MAX_WORD_LENGTH];
+        private int nextId;
+        private int position;
+        private int length = 0;
+        private int shared = 0;
+
+        /**
+         * Make a cursor before word firstId, which is a multiple of
+         * RESTART_INTERVAL.
+         */
+        private Cursor(int firstId) {
+            nextId = firstId;
+            position = (firstId < size) ? buffer.getInt(HEADER_SIZE + 4 * (firstId / RESTART_INTERVAL)) : 0;
+        }
+
+        /**
+         * Move to the next word.
+         * 
+         * @return false if there are no more words, otherwise true.
+         */
+        public boolean next() {
+            if (nextId >= size) {
+                return false;
+            }
+            int stored = buffer.get(position++) & 0xFF;
+            int rest = buffer.get(position++) & 0xFF;
+            // a restart stores no shared prefix, but the previous word is
+            // still in chars, so the real one is found while decoding
+            shared = stored;
+            for (int i = stored; i < stored + rest; i++) {
+                char c = (char) (buffer.get(position++) & 0xFF);
+                if (shared == i && i < length && chars[i] == c) {
+                    shared++;
+                }
+                chars[i] = c;
+            }
+            length = stored + rest;
+            nextId++;
+            return true;
+        }
+
+        /**
+         * @return the length of the prefix the current word shares with the
+         *         word this cursor was at before, which is 0 for the first.
+         */
+        public int sharedPrefix() {
+            return shared;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return chars[index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, 0, length);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package piwords;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class CompactDictionaryTest {
+    /**
+     * Writes words to a temporary word file, one per line, and builds a
+     * dictionary from it.
+     */
+    private static File buildDictionary(String[] words) throws IOException {
+        File wordFile = File.createTempFile("words", ".txt");
+        File dictFile = File.createTempFile("words", ".compact");
+        try {
+            FileWriter writer = new FileWriter(wordFile);
+            for (String word : words) {
+                writer.write(word + "\n");
+            }
+            writer.close();
+            CompactDictionary.build(wordFile.getPath(), dictFile);
+        } finally {
+            wordFile.delete();
+        }
+        return dictFile;
+    }
+
+    @Test
+    public void wordAndCursorTest() throws IOException {
+        //more than one restart interval, with shared prefixes and duplicates
+        String[] words = new String[40];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = "ab" + (char) ('a' + i % 13) + "xyz".substring(i % 3);
+        }
+        words[7] = "";
+        words[8] = "abc";
+        File dictFile = buildDictionary(words);
+        try {
+            CompactDictionary dictionary = new CompactDictionary(dictFile);
+            String[] sorted = words.clone();
+            Arrays.sort(sorted);
+            assertEquals(sorted.length, dictionary.size());
+            //test random access, including across restarts
+            for (int id = sorted.length - 1; id >= 0; id--) {
+                assertEquals(sorted[id], dictionary.word(id));
+            }
+            //test that the cursor walks every word in order
+            CompactDictionary.Cursor cursor = dictionary.cursor();
+            for (int id = 0; id < sorted.length; id++) {
+                assertEquals(true, cursor.next());
+                assertEquals(sorted[id], cursor.toString());
+                assertEquals(sorted[id].length(), cursor.length());
+            }
+            assertEquals(false, cursor.next());
+            //test matching words that share a prefix across a restart
+            String haystack = "abaxyzabfabmxabdyz";
+            assertEquals(WordFinder.findWords(haystack, words),
+                         WordFinder.findWords(haystack, new AhoCorasick(dictionary)));
+            dictionary.close();
+        } finally {
+            dictFile.delete();
+        }
+    }
+
+    @Test
+    public void matcherTest() throws IOException {
+        String haystack = "abababcdefbcdqqbcabc";
+        String[] needles = {"bcd", "ab", "cdq", "zz", "ab", "abc", "q", "bca"};
+        File dictFile = buildDictionary(needles);
+        try {
+            CompactDictionary dictionary = new CompactDictionary(dictFile);
+            //test that walking the dictionary finds the same words
+            assertEquals(WordFinder.findWords(haystack, needles),
+                         WordFinder.findWords(haystack, new AhoCorasick(dictionary)));
+            dictionary.close();
+        } finally {
+            dictFile.delete();
+        }
+    }
+
+    @Test
+    public void invalidFileTest() throws IOException {
+        File notDictFile = File.createTempFile("words", ".txt");
+        try {
+            FileWriter writer = new FileWriter(notDictFile);
+            writer.write("java\nis\nfun\nand\nthis\nis\nnot\na\ndictionary\n");
+            writer.close();
+            boolean threwException = false;
+            try {
+                new CompactDictionary(notDictFile);
+            } catch (IOException e) {
+                threwException = true;
+            }
+            assertEquals(true, threwException);
+        } finally {
+            notDictFile.delete();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package piwords;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * DigitBuffer is a fixed-length, mutable sequence of digits in a single base
+ * up to 256, stored compactly: two digits per byte for bases up to 16 and
+ * one digit per byte above that. It takes the place of an int[] of digits
+ * at an eighth or a quarter of the memory.
+ */
+public class DigitBuffer {
+    private final int base;
+    private final int length;
+    // 4 for nibble-packed buffers, 8 for byte-packed ones
+    private final int bitsPerDigit;
+    private final byte[] data;
+
+    // rep invariant: 2 <= base <= 256; bitsPerDigit == 4 iff base <= 16;
+    //   data holds length digits, each less than base, the earlier digit in
+    //   the high nibble when nibble-packed; unused bits are 0
+
+    /**
+     * Make a buffer of length digits, all 0.
+     * 
+     * @param base The base of the digits. Requires 2 <= base <= 256.
+     * @param length The number of digits. Requires length >= 0.
+     */
+    public DigitBuffer(int base, int length) {
+        if (base < 2 || base > 256) {
+            throw new IllegalArgumentException("DigitBuffer base must be in [2, 256]");
+        }
+        this.base = base;
+        this.length = length;
+        this.bitsPerDigit = (base <= 16) ? 4 : 8;
+        this.data = new byte[(bitsPerDigit == 4) ? (length + 1) / 2 : length];
+    }
+
+    /**
+     * Make a buffer holding a copy of digits.
+     * 
+     * @param digits The digits to copy. This array is not mutated.
+     * @param base The base of the digits. Requires 2 <= base <= 256.
+     * @return a buffer with the same digits as digits.
+     * @throws IllegalArgumentException if any value in digits is not a valid
+     *            digit in the given base.
+     */
+    public static DigitBuffer fromArray(int[] digits, int base)
+            throws IllegalArgumentException {
+        DigitBuffer buffer = new DigitBuffer(base, digits.length);
+        for (int i = 0; i < digits.length; i++) {
+            buffer.set(i, digits[i]);
+        }
+        return buffer;
+    }
+
+    /**
+     * @return the base of the digits in this buffer.
+     */
+    public int base() {
+        return base;
+    }
+
+    /**
+     * @return the number of digits in this buffer.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @param index Requires 0 <= index < length().
+     * @return the digit at index.
+     */
+    public int get(int index) {
+        if (bitsPerDigit == 8) {
+            return data[index] & 0xFF;
+        }
+        int packed = data[index >> 1];
+        return ((index & 1) == 0) ? (packed >> 4) & 0xF : packed & 0xF;
+    }
+
+    /**
+     * Replace the digit at index.
+     * 
+     * @param index Requires 0 <= index < length().
+     * @param digit The new digit.
+     * @throws IllegalArgumentException if digit is not a valid digit in
+     *            base(), i.e. digit < 0 or digit >= base().
+     */
+    public void set(int index, int digit) throws IllegalArgumentException {
+        if (digit < 0 || digit >= base) {
+            throw new IllegalArgumentException("digit must be a valid digit in base");
+        }
+        if (bitsPerDigit == 8) {
+            data[index] = (byte) digit;
+        } else if ((index & 1) == 0) {
+            data[index >> 1] = (byte) ((digit << 4) | (data[index >> 1] & 0x0F));
+        } else {
+            data[index >> 1] = (byte) ((data[index >> 1] & 0xF0) | digit);
+        }
+    }
+
+    /**
+     * @return a new array holding the digits of this buffer.
+     */
+    public int[] toArray() {
+        int[] digits = new int[length];
+        for (int i = 0; i < length; i++) {
+            digits[i] = get(i);
+        }
+        return digits;
+    }
+
+    /**
+     * @return an iterator over the digits of this buffer, first to last. The
+     *         buffer must not be modified while it is in use.
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < length;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return get(next++);
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DigitBuffer)) {
+            return false;
+        }
+        DigitBuffer other = (DigitBuffer) o;
+        return base == other.base && length == other.length
+               && Arrays.equals(data, other.data);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 17;
+        result = 37 * result + base;
+        result = 37 * result + Arrays.hashCode(data);
+        return result;
+    }
+}
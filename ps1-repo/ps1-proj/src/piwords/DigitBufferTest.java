@@ -0,0 +1,62 @@
+package piwords;
+
+import static org.junit.Assert.*;
+
+import java.util.PrimitiveIterator;
+
+import org.junit.Test;
+
+public class DigitBufferTest {
+    @Test
+    public void basicDigitBufferTest() {
+        //test nibble packing with an odd length
+        DigitBuffer hex = DigitBuffer.fromArray(new int[]{2, 4, 3, 15, 6}, 16);
+        assertEquals(16, hex.base());
+        assertEquals(5, hex.length());
+        assertArrayEquals(new int[]{2, 4, 3, 15, 6}, hex.toArray());
+        hex.set(3, 0);
+        hex.set(4, 15);
+        assertArrayEquals(new int[]{2, 4, 3, 0, 15}, hex.toArray());
+        
+        //test byte packing, including the largest base
+        DigitBuffer bytes = DigitBuffer.fromArray(new int[]{99, 0, 255, 17}, 256);
+        assertArrayEquals(new int[]{99, 0, 255, 17}, bytes.toArray());
+        
+        //test a new buffer is all zeros
+        assertArrayEquals(new int[]{0, 0, 0}, new DigitBuffer(100, 3).toArray());
+        assertEquals(0, new DigitBuffer(7, 0).length());
+    }
+
+    @Test
+    public void iteratorAndEqualsTest() {
+        DigitBuffer digits = DigitBuffer.fromArray(new int[]{1, 0, 2}, 3);
+        PrimitiveIterator.OfInt it = digits.iterator();
+        assertEquals(1, it.nextInt());
+        assertEquals(0, it.nextInt());
+        assertEquals(2, it.nextInt());
+        assertEquals(false, it.hasNext());
+        
+        assertEquals(digits, DigitBuffer.fromArray(new int[]{1, 0, 2}, 3));
+        assertEquals(digits.hashCode(), DigitBuffer.fromArray(new int[]{1, 0, 2}, 3).hashCode());
+        assertEquals(false, digits.equals(DigitBuffer.fromArray(new int[]{1, 0, 2}, 4)));
+        assertEquals(false, digits.equals(DigitBuffer.fromArray(new int[]{1, 0}, 3)));
+    }
+
+    @Test
+    public void invalidDigitTest() {
+        boolean threwException = false;
+        try {
+            DigitBuffer.fromArray(new int[]{2, 16}, 16);
+        } catch (IllegalArgumentException e) {
+            threwException = true;
+        }
+        assertEquals(true, threwException);
+        threwException = false;
+        try {
+            new DigitBuffer(257, 1);
+        } catch (IllegalArgumentException e) {
+            threwException = true;
+        }
+        assertEquals(true, threwException);
+    }
+}
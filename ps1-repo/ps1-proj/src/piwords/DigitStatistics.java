@@ -0,0 +1,183 @@
+package piwords;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * DigitStatistics gathers the distribution of a stream of digits one digit
+ * at a time: how often each digit occurs, the longest run of each digit,
+ * and the chi-square statistic of every window of windowSize digits against
+ * a uniform distribution.
+ *
+ * It is an IntConsumer so that it can be passed as the stage of
+ * DigitsToStringConverter.convertDigitsToString, gathering the statistics
+ * in the same pass that converts the digits. All counters are primitive, so
+ * accepting a digit never allocates, except to grow the array of window
+ * statistics.
+ *
+ * DigitStatistics is not thread-safe.
+ */
+public class DigitStatistics implements IntConsumer {
+    private final int base;
+    private final int windowSize;
+
+    private long count = 0;
+    private final long[] frequencies;
+    private final int[] longestRuns;
+    // the digit of the run ending at the last digit accepted, and its length
+    private int runDigit = -1;
+    private int runLength = 0;
+    // digit counts of the window being filled
+    private final int[] windowCounts;
+    private int windowFill = 0;
+    private double[] windowChiSquares = new double[16];
+    private int numWindows = 0;
+
+    // rep invariant: count is the sum of frequencies; windowFill is the sum
+    //   of windowCounts and is < windowSize; numWindows == count / windowSize
+
+    /**
+     * Make an empty set of statistics for digits of base.
+     *
+     * @param base The base of the digits. Requires base >= 2.
+     * @param windowSize The number of digits in each chi-square window.
+     *                   Requires windowSize >= 1.
+     * @throws IllegalArgumentException if base < 2 or windowSize < 1.
+     */
+    public DigitStatistics(int base, int windowSize) throws IllegalArgumentException {
+        if (base < 2 || windowSize < 1) {
+            throw new IllegalArgumentException("base must be >= 2 and windowSize >= 1");
+        }
+        this.base = base;
+        this.windowSize = windowSize;
+        frequencies = new long[base];
+        longestRuns = new int[base];
+        windowCounts = new int[base];
+    }
+
+    /**
+     * Add the next digit of the stream.
+     *
+     * @param digit The digit. Requires 0 <= digit < base.
+     * @throws IllegalArgumentException if digit is not a valid digit in base.
+     */
+    @Override
+    public void accept(int digit) throws IllegalArgumentException {
+        if (digit < 0 || digit >= base) {
+            throw new IllegalArgumentException("Digit " + digit + " is not in base " + base);
+        }
+        count++;
+        frequencies[digit]++;
+
+        if (digit == runDigit) {
+            runLength++;
+        } else {
+            runDigit = digit;
+            runLength = 1;
+        }
+        if (runLength > longestRuns[digit]) {
+            longestRuns[digit] = runLength;
+        }
+
+        windowCounts[digit]++;
+        if (++windowFill == windowSize) {
+            if (numWindows == windowChiSquares.length) {
+                windowChiSquares = Arrays.copyOf(windowChiSquares, 2 * numWindows);
+            }
+            windowChiSquares[numWindows++] = chiSquare(windowCounts, windowSize);
+            Arrays.fill(windowCounts, 0);
+            windowFill = 0;
+        }
+    }
+
+    /**
+     * @return the base of the digits.
+     */
+    public int base() {
+        return base;
+    }
+
+    /**
+     * @return the number of digits accepted so far.
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * @param digit Requires 0 <= digit < base.
+     * @return the number of times digit has been accepted.
+     */
+    public long frequency(int digit) {
+        return frequencies[digit];
+    }
+
+    /**
+     * @param digit Requires 0 <= digit < base.
+     * @return the length of the longest run of consecutive digits equal to
+     *         digit, or 0 if digit hasn't been accepted.
+     */
+    public int longestRun(int digit) {
+        return longestRuns[digit];
+    }
+
+    /**
+     * @return the length of the longest run of consecutive equal digits, or
+     *         0 if no digits have been accepted.
+     */
+    public int longestRun() {
+        int longest = 0;
+        for (int run : longestRuns) {
+            longest = Math.max(longest, run);
+        }
+        return longest;
+    }
+
+    /**
+     * @return the chi-square statistic of the frequencies of all digits
+     *         accepted so far against a uniform distribution, with base - 1
+     *         degrees of freedom, or 0 if no digits have been accepted.
+     */
+    public double chiSquare() {
+        double sum = 0;
+        double expected = (double) count / base;
+        for (long frequency : frequencies) {
+            double difference = frequency - expected;
+            sum += difference * difference;
+        }
+        return count == 0 ? 0 : sum / expected;
+    }
+
+    /**
+     * @return the number of complete windows of windowSize digits accepted
+     *         so far. Digits after the last complete window belong to no
+     *         window yet.
+     */
+    public int numWindows() {
+        return numWindows;
+    }
+
+    /**
+     * @param window Requires 0 <= window < numWindows().
+     * @return the chi-square statistic, as by chiSquare(), of the digits
+     *         from window * windowSize to (window + 1) * windowSize,
+     *         exclusive.
+     * @throws IndexOutOfBoundsException if window is not a complete window.
+     */
+    public double windowChiSquare(int window) throws IndexOutOfBoundsException {
+        if (window < 0 || window >= numWindows) {
+            throw new IndexOutOfBoundsException("No window " + window);
+        }
+        return windowChiSquares[window];
+    }
+
+    private static double chiSquare(int[] counts, int total) {
+        double expected = (double) total / counts.length;
+        double sum = 0;
+        for (int observed : counts) {
+            double difference = observed - expected;
+            sum += difference * difference;
+        }
+        return sum / expected;
+    }
+}
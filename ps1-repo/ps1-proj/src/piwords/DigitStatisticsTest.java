@@ -0,0 +1,110 @@
+package piwords;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class DigitStatisticsTest {
+    @Test
+    public void basicStatisticsTest() {
+        DigitStatistics statistics = new DigitStatistics(4, 4);
+        for (int digit : new int[]{0, 1, 1, 1, 2, 0, 0, 3, 3}) {
+            statistics.accept(digit);
+        }
+        assertEquals(9, statistics.count());
+        assertEquals(3, statistics.frequency(0));
+        assertEquals(3, statistics.frequency(1));
+        assertEquals(1, statistics.frequency(2));
+        assertEquals(2, statistics.frequency(3));
+        assertEquals(2, statistics.longestRun(0));
+        assertEquals(3, statistics.longestRun(1));
+        assertEquals(1, statistics.longestRun(2));
+        assertEquals(2, statistics.longestRun(3));
+        assertEquals(3, statistics.longestRun());
+
+        //test that only complete windows count: {0,1,1,1} and {2,0,0,3}
+        assertEquals(2, statistics.numWindows());
+        assertEquals((0 + 4 + 1 + 1) / 1.0, statistics.windowChiSquare(0), 1e-9);
+        assertEquals((1 + 0 + 0 + 1) / 1.0, statistics.windowChiSquare(1), 1e-9);
+        //expected 9/4 of each digit overall
+        double expected = 9 / 4.0;
+        double sum = 0;
+        for (int observed : new int[]{3, 3, 1, 2}) {
+            sum += (observed - expected) * (observed - expected);
+        }
+        assertEquals(sum / expected, statistics.chiSquare(), 1e-9);
+    }
+
+    @Test
+    public void emptyStatisticsTest() {
+        DigitStatistics statistics = new DigitStatistics(10, 100);
+        assertEquals(0, statistics.count());
+        assertEquals(0, statistics.longestRun());
+        assertEquals(0, statistics.numWindows());
+        assertEquals(0, statistics.chiSquare(), 0);
+    }
+
+    @Test
+    public void invalidInputTest() {
+        boolean threwException = false;
+        try {
+            new DigitStatistics(1, 10);
+        } catch (IllegalArgumentException e) {
+            threwException = true;
+        }
+        assertEquals(true, threwException);
+
+        DigitStatistics statistics = new DigitStatistics(3, 2);
+        threwException = false;
+        try {
+            statistics.accept(3);
+        } catch (IllegalArgumentException e) {
+            threwException = true;
+        }
+        assertEquals(true, threwException);
+
+        statistics.accept(2);
+        threwException = false;
+        try {
+            statistics.windowChiSquare(0);
+        } catch (IndexOutOfBoundsException e) {
+            threwException = true;
+        }
+        assertEquals(true, threwException);
+    }
+
+    @Test
+    public void manyWindowsTest() {
+        //test that the window statistics grow past their initial capacity
+        DigitStatistics statistics = new DigitStatistics(2, 2);
+        for (int i = 0; i < 1000; i++) {
+            statistics.accept(i % 2);
+        }
+        assertEquals(500, statistics.numWindows());
+        for (int window = 0; window < 500; window++) {
+            assertEquals(0, statistics.windowChiSquare(window), 0);
+        }
+        assertEquals(1, statistics.longestRun());
+    }
+
+    @Test
+    public void converterStageTest() {
+        //test that the stage sees the same digits as the conversion
+        int[] digits = {2, 3, 3, 4, 1, 0, 5, 6, 7};
+        char[] alphabet = {'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h'};
+        DigitStatistics fromArray = new DigitStatistics(8, 3);
+        DigitStatistics fromIterator = new DigitStatistics(8, 3);
+        assertEquals("cddebafgh",
+                DigitsToStringConverter.convertDigitsToString(digits, 8, alphabet, fromArray));
+        assertEquals("cddebafgh", DigitsToStringConverter.convertDigitsToString(
+                Arrays.stream(digits).iterator(), 8, alphabet, fromIterator));
+        for (DigitStatistics statistics : new DigitStatistics[]{fromArray, fromIterator}) {
+            assertEquals(9, statistics.count());
+            assertEquals(2, statistics.frequency(3));
+            assertEquals(2, statistics.longestRun(3));
+            assertEquals(3, statistics.numWindows());
+        }
+    }
+}
@@ -1,5 +1,13 @@
 package piwords;
 
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+
 public class DigitsToStringConverter {
     /**
      * Given a list of digits, a base, and a mapping of digits of that base to
@@ -31,4 +39,143 @@ public class DigitsToStringConverter {
         }
         return sb.toString();
     }
+
+    /**
+     * Like convertDigitsToString(int[], int, char[]), but takes the digits
+     * from an iterator, so that conversion can start before all the digits
+     * have been produced.
+     *
+     * @param digits The digits to encode. The iterator is used up.
+     * @param base The base the digits are encoded in.
+     * @param alphabet The mapping of digits to chars. This object is not
+     *                 mutated. Requires alphabet.length == base. 
+     * @return A String encoding the input digits with alphabet.
+     * @throws IllegalArgumentException if any digit is not a valid digit in
+     *            the given base.
+     */
+    public static String convertDigitsToString(PrimitiveIterator.OfInt digits,
+            int base, char[] alphabet) throws IllegalArgumentException {
+        StringBuilder sb = new StringBuilder();
+        while (digits.hasNext()) {
+            int element = digits.nextInt();
+            if (element < 0 || element >= base) {
+                throw new IllegalArgumentException(
+                        "All elements of the digits array must be digits in base");
+            }
+            sb.append(alphabet[element]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Like convertDigitsToString(PrimitiveIterator.OfInt, int, char[]), but
+     * also passes each digit, in order, to stage as it is converted, so that
+     * a stage such as DigitStatistics sees the digits in the same pass.
+     *
+     * @param digits The digits to encode. The iterator is used up.
+     * @param base The base the digits are encoded in.
+     * @param alphabet The mapping of digits to chars. This object is not
+     *                 mutated. Requires alphabet.length == base. 
+     * @param stage Accepts every digit.
+     * @return A String encoding the input digits with alphabet.
+     * @throws IllegalArgumentException if any digit is not a valid digit in
+     *            the given base.
+     */
+    public static String convertDigitsToString(PrimitiveIterator.OfInt digits,
+            int base, char[] alphabet, IntConsumer stage) throws IllegalArgumentException {
+        StringBuilder sb = new StringBuilder();
+        while (digits.hasNext()) {
+            int element = digits.nextInt();
+            if (element < 0 || element >= base) {
+                throw new IllegalArgumentException(
+                        "All elements of the digits array must be digits in base");
+            }
+            sb.append(alphabet[element]);
+            stage.accept(element);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Like convertDigitsToString(int[], int, char[]), but also passes each
+     * digit, in order, to stage as it is converted.
+     *
+     * @param digits A list of digits to encode. This object is not mutated.
+     * @param base The base the digits are encoded in.
+     * @param alphabet The mapping of digits to chars. This object is not
+     *                 mutated. Requires alphabet.length == base. 
+     * @param stage Accepts every digit, and none if any digit is invalid.
+     * @return A String encoding the input digits with alphabet.
+     * @throws IllegalArgumentException if any value in digits is not a valid
+     *            digit in the given base.
+     */
+    public static String convertDigitsToString(int[] digits, int base,
+            char[] alphabet, IntConsumer stage) throws IllegalArgumentException {
+        for (int element : digits) {
+            if (element < 0 || element >= base) {
+                throw new IllegalArgumentException(
+                        "All elements of the digits array must be digits in base");
+            }
+        }
+        char[] chars = new char[digits.length];
+        for (int i = 0; i < digits.length; i++) {
+            chars[i] = alphabet[digits[i]];
+            stage.accept(digits[i]);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Like convertDigitsToString(int[], int, char[]), for packed digits.
+     *
+     * @param digits The digits to encode. This object is not mutated.
+     * @param alphabet The mapping of digits to chars. This object is not
+     *                 mutated. Requires alphabet.length == digits.base(). 
+     * @return A String encoding the input digits with alphabet.
+     */
+    public static String convertDigitsToString(DigitBuffer digits, char[] alphabet) {
+        char[] chars = new char[digits.length()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = alphabet[digits.get(i)];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Like convertDigitsToString(PrimitiveIterator.OfInt, int, char[]), but
+     * writes the chars to a file, one byte each, instead of building a
+     * String, so the output may be longer than fits in memory. The file can
+     * be searched with WordFinder.findWords(File, AhoCorasick).
+     *
+     * @param digits The digits to encode. The iterator is used up.
+     * @param base The base the digits are encoded in.
+     * @param alphabet The mapping of digits to chars. This object is not
+     *                 mutated. Requires alphabet.length == base.
+     * @param file The file to write, replacing its contents.
+     * @throws IllegalArgumentException if any digit is not a valid digit in
+     *            the given base, or a char of alphabet doesn't fit in a byte.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void convertDigitsToFile(PrimitiveIterator.OfInt digits, int base,
+            char[] alphabet, File file) throws IllegalArgumentException, IOException {
+        for (char c : alphabet) {
+            if (c > 0xFF) {
+                throw new IllegalArgumentException(
+                        "All chars of the alphabet must fit in a byte");
+            }
+        }
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+        try {
+            while (digits.hasNext()) {
+                int element = digits.nextInt();
+                if (element < 0 || element >= base) {
+                    throw new IllegalArgumentException(
+                            "All elements of the digits array must be digits in base");
+                }
+                out.write(alphabet[element]);
+            }
+        } finally {
+            out.close();
+        }
+    }
 }
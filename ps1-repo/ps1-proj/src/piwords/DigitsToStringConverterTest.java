@@ -2,6 +2,11 @@ package piwords;
 
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
 import org.junit.Test;
 
 public class DigitsToStringConverterTest {
@@ -51,4 +56,60 @@ public class DigitsToStringConverterTest {
     	}
     	assertEquals(true, threwException);
     }
+    
+    @Test
+    public void convertDigitStreamToStringTest() {
+        final char[] alphabet = new char[]{'a','c','e','g'};
+        //test that the iterator overload agrees with the array version
+        int[] input = new int[]{3,0,2,1,1};
+        assertEquals(DigitsToStringConverter.convertDigitsToString(input, 4, alphabet),
+                DigitsToStringConverter.convertDigitsToString(
+                        Arrays.stream(input).iterator(), 4, alphabet));
+        
+        //test straight from a base conversion
+        assertEquals("ggcaaageg", DigitsToStringConverter.convertDigitsToString(
+                BaseTranslator.convertBaseStream(new int[]{6,4,5}, 7, 4, 9), 4, alphabet));
+        
+        //test that illegal argument exception is working
+        boolean threwException = false;
+        try {
+            DigitsToStringConverter.convertDigitsToString(
+                    Arrays.stream(new int[]{2, 4}).iterator(), 4, alphabet);
+        } catch (IllegalArgumentException e) {
+            threwException = true;
+        }
+        assertEquals(true, threwException);
+    }
+    
+    @Test
+    public void convertDigitBufferToStringTest() {
+        final char[] weirdAlphabet = new char[]{'a','/','%',',','3','M','+','z'};
+        DigitBuffer input = DigitBuffer.fromArray(new int[]{2,3,3,4,1,0,5,6,7}, 8);
+        assertEquals("%,,3/aM+z", DigitsToStringConverter.convertDigitsToString(input, weirdAlphabet));
+        assertEquals("", DigitsToStringConverter.convertDigitsToString(
+                new DigitBuffer(8, 0), weirdAlphabet));
+    }
+
+    @Test
+    public void convertDigitsToFileTest() throws IOException {
+        File file = File.createTempFile("digits", ".txt");
+        try {
+            int[] digits = {1, 0, 2, 0};
+            char[] alphabet = {'a', 'j', 'v'};
+            DigitsToStringConverter.convertDigitsToFile(
+                    Arrays.stream(digits).iterator(), 3, alphabet, file);
+            assertEquals("java", new String(Files.readAllBytes(file.toPath()), "ISO-8859-1"));
+            //test a digit that is not valid in the base
+            boolean threwException = false;
+            try {
+                DigitsToStringConverter.convertDigitsToFile(
+                        Arrays.stream(new int[]{1, 3}).iterator(), 3, alphabet, file);
+            } catch (IllegalArgumentException e) {
+                threwException = true;
+            }
+            assertEquals(true, threwException);
+        } finally {
+            file.delete();
+        }
+    }
 }
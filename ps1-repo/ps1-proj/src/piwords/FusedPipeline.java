@@ -0,0 +1,89 @@
+package piwords;
+
+import java.util.Map;
+import java.util.PrimitiveIterator;
+
+/**
+ * FusedPipeline runs the last three stages of the piwords pipeline, base
+ * conversion, alphabet mapping and word matching, as a single pass. Each
+ * baseB digit is mapped to its char and fed to the automaton as soon as it
+ * is produced, so neither the converted digits nor the translated string
+ * are ever stored.
+ * 
+ * Memory is bounded by the packed input and one int per needle, whatever
+ * precisionB is. The conversion is the streaming multiply-and-carry one, so
+ * for very large inputs the staged path through BaseTranslator.convertBase
+ * is faster, at the cost of holding every intermediate result.
+ */
+public class FusedPipeline {
+    /**
+     * Finds the needles of matcher in the string that the staged pipeline
+     * would produce, i.e. returns the same map as
+     * 
+     *     WordFinder.findWords(DigitsToStringConverter.convertDigitsToString(
+     *             BaseTranslator.convertBase(digits, baseA, baseB, precisionB),
+     *             baseB, alphabet), matcher)
+     * 
+     * @param digits The input array to translate. This array is not mutated.
+     * @param baseA The base that the input array is expressed in. Requires baseA >= 2.
+     * @param baseB The base that the input array is translated into. Requires baseB >= 2.
+     * @param precisionB The number of digits of precision to search.
+     *                   Requires precisionB >= 0.
+     * @param alphabet The mapping of baseB digits to chars. This object is
+     *                 not mutated.
+     * @param matcher An automaton built from the needles to search for.
+     * @return A map of needles that were found mapped to the lowest index
+     *         at which the needle was found.
+     * @throws IllegalArgumentException if any value in digits is not a baseA
+     *            digit, or alphabet.length != baseB.
+     */
+    public static Map<String, Integer> findWords(int[] digits, int baseA,
+            int baseB, int precisionB, char[] alphabet, AhoCorasick matcher)
+            throws IllegalArgumentException {
+        checkAlphabet(baseB, alphabet);
+        return findWords(BaseTranslator.convertBaseStream(digits, baseA, baseB, precisionB),
+                         alphabet, matcher);
+    }
+
+    /**
+     * Like findWords(int[], int, int, int, char[], AhoCorasick), for packed
+     * digits. The input base is digits.base().
+     * 
+     * @param digits The input digits to translate. This object is not mutated.
+     * @param baseB The base that the input is translated into. Requires baseB >= 2.
+     * @param precisionB The number of digits of precision to search.
+     *                   Requires precisionB >= 0.
+     * @param alphabet The mapping of baseB digits to chars. This object is
+     *                 not mutated.
+     * @param matcher An automaton built from the needles to search for.
+     * @return A map of needles that were found mapped to the lowest index
+     *         at which the needle was found.
+     * @throws IllegalArgumentException if alphabet.length != baseB.
+     */
+    public static Map<String, Integer> findWords(DigitBuffer digits, int baseB,
+            int precisionB, char[] alphabet, AhoCorasick matcher)
+            throws IllegalArgumentException {
+        checkAlphabet(baseB, alphabet);
+        return findWords(new BaseConversionIterator(digits, baseB, precisionB),
+                         alphabet, matcher);
+    }
+
+    /**
+     * Maps each digit of baseDigits through alphabet and feeds it to matcher.
+     */
+    private static Map<String, Integer> findWords(PrimitiveIterator.OfInt baseDigits,
+            char[] alphabet, AhoCorasick matcher) {
+        int[] first = matcher.noOccurrences(0);
+        int state = 0;
+        for (int i = 0; baseDigits.hasNext(); i++) {
+            state = matcher.advance(state, alphabet[baseDigits.nextInt()], i, first);
+        }
+        return matcher.toMap(first);
+    }
+
+    private static void checkAlphabet(int baseB, char[] alphabet) {
+        if (alphabet.length != baseB) {
+            throw new IllegalArgumentException("The alphabet must have one char per baseB digit.");
+        }
+    }
+}
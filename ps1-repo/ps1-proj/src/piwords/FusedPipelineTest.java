@@ -0,0 +1,62 @@
+package piwords;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class FusedPipelineTest {
+    private static final char[] BASIC_ALPHABET =
+        {'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k', 'l', 'm', 'n',
+         'o', 'p', 'q', 'r', 's', 't', 'u', 'v', 'w', 'x', 'y', 'z'};
+
+    @Test
+    public void sameAsStagedTest() {
+        int[] piHexDigits = PiGenerator.computePiInHex(300);
+        String[] needles = {"a", "ab", "dr", "rsq", "qlo", "zz", "", "dr", "pi"};
+        AhoCorasick matcher = new AhoCorasick(needles);
+        String staged = DigitsToStringConverter.convertDigitsToString(
+                BaseTranslator.convertBase(piHexDigits, 16, 26, 300), 26, BASIC_ALPHABET);
+        assertEquals(WordFinder.findWords(staged, matcher),
+                     FusedPipeline.findWords(piHexDigits, 16, 26, 300, BASIC_ALPHABET, matcher));
+        //test packed digits give the same result
+        assertEquals(WordFinder.findWords(staged, matcher),
+                     FusedPipeline.findWords(DigitBuffer.fromArray(piHexDigits, 16), 26, 300,
+                                             BASIC_ALPHABET, matcher));
+    }
+
+    @Test
+    public void sameAsStagedFrequencyAlphabetTest() {
+        int[] piHexDigits = PiGenerator.computePiInHex(200);
+        char[] alphabet = new char[100];
+        for (int i = 0; i < alphabet.length; i++) {
+            alphabet[i] = (char) ('a' + i * 7 % 26);
+        }
+        String[] needles = {"ab", "ha", "ova", "bo", "zzz", "h"};
+        AhoCorasick matcher = new AhoCorasick(needles);
+        String staged = DigitsToStringConverter.convertDigitsToString(
+                BaseTranslator.convertBase(piHexDigits, 16, 100, 150), 100, alphabet);
+        assertEquals(WordFinder.findWords(staged, matcher),
+                     FusedPipeline.findWords(piHexDigits, 16, 100, 150, alphabet, matcher));
+    }
+
+    @Test
+    public void invalidInputTest() {
+        AhoCorasick matcher = new AhoCorasick(new String[]{"a"});
+        //test a digit that is not valid in baseA
+        boolean threwException = false;
+        try {
+            FusedPipeline.findWords(new int[]{1, 16}, 16, 26, 5, BASIC_ALPHABET, matcher);
+        } catch (IllegalArgumentException e) {
+            threwException = true;
+        }
+        assertEquals(true, threwException);
+        //test an alphabet that doesn't match baseB
+        threwException = false;
+        try {
+            FusedPipeline.findWords(new int[]{1, 2}, 16, 10, 5, BASIC_ALPHABET, matcher);
+        } catch (IllegalArgumentException e) {
+            threwException = true;
+        }
+        assertEquals(true, threwException);
+    }
+}
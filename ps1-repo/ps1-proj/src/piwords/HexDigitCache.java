@@ -0,0 +1,160 @@
+package piwords;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HexDigitCache serves arbitrary ranges of hexadecimal digits of pi,
+ * computed with BBP in fixed-size blocks that are kept in a least recently
+ * used cache.
+ * 
+ * Block k holds the BLOCK_SIZE digits from position k * BLOCK_SIZE on, with
+ * positions numbered as by PiGenerator.piDigit. When several threads need
+ * the same block at once, one computes it and the others wait for its
+ * result, so a block still in the cache is computed exactly once however
+ * many overlapping requests there are.
+ * 
+ * HexDigitCache is thread-safe: the cache is only touched while holding its
+ * lock, and blocks being computed are shared through a concurrent map of
+ * futures. Blocks are never modified once computed.
+ */
+public class HexDigitCache {
+    // A multiple of PiGenerator.BLOCK_DIGITS, so no BBP evaluation is cut short.
+    static final int BLOCK_SIZE = 64 * PiGenerator.BLOCK_DIGITS;
+
+    private final Map<Long, int[]> cache;
+    private final ConcurrentHashMap<Long, FutureTask<int[]>> inFlight =
+            new ConcurrentHashMap<Long, FutureTask<int[]>>();
+    private final AtomicLong blocksComputed = new AtomicLong();
+
+    // rep invariant: cache holds at most maxBlocks entries, each an array
+    //   of BLOCK_SIZE digits; a block is put in cache before its task is
+    //   removed from inFlight
+
+    /**
+     * Make an empty cache.
+     * 
+     * @param maxBlocks The most blocks to keep. Requires maxBlocks >= 1.
+     */
+    public HexDigitCache(final int maxBlocks) {
+        cache = new LinkedHashMap<Long, int[]>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, int[]> eldest) {
+                return size() > maxBlocks;
+            }
+        };
+    }
+
+    /**
+     * Returns length consecutive hexadecimal digits of pi, starting with the
+     * offset-th digit as numbered by PiGenerator.piDigit.
+     * 
+     * @param offset The position of the first digit to retrieve.
+     * @param length The number of digits to retrieve.
+     * @return length digits of pi in base-16, most significant first.
+     * @throws IllegalArgumentException when offset or length is less than 0.
+     */
+    public int[] getHexDigits(long offset, int length) throws IllegalArgumentException {
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException(
+                    "offset and length passed into getHexDigits must be >= 0");
+        }
+        int[] result = new int[length];
+        int i = 0;
+        while (i < length) {
+            long position = offset + i;
+            long block = position / BLOCK_SIZE;
+            int start = (int) (position - block * BLOCK_SIZE);
+            int count = Math.min(BLOCK_SIZE - start, length - i);
+            System.arraycopy(getBlock(block), start, result, i, count);
+            i += count;
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of blocks this cache has computed so far.
+     */
+    long blocksComputed() {
+        return blocksComputed.get();
+    }
+
+    /**
+     * Returns the digits of block, from the cache, from a thread already
+     * computing it, or computed by this thread.
+     */
+    private int[] getBlock(final long block) {
+        int[] digits = cached(block);
+        if (digits != null) {
+            return digits;
+        }
+        FutureTask<int[]> task = new FutureTask<int[]>(new Callable<int[]>() {
+            @Override
+            public int[] call() {
+                // another thread may have finished the block between the
+                // cache lookup and this task taking its place in inFlight
+                int[] done = cached(block);
+                if (done != null) {
+                    return done;
+                }
+                blocksComputed.incrementAndGet();
+                return PiGenerator.computePiHexBlock(block * BLOCK_SIZE, BLOCK_SIZE);
+            }
+        });
+        FutureTask<int[]> running = inFlight.putIfAbsent(block, task);
+        if (running != null) {
+            return await(running);
+        }
+        try {
+            task.run();
+            digits = await(task);
+            synchronized (cache) {
+                cache.put(block, digits);
+            }
+            return digits;
+        } finally {
+            inFlight.remove(block, task);
+        }
+    }
+
+    private int[] cached(long block) {
+        synchronized (cache) {
+            return cache.get(block);
+        }
+    }
+
+    /**
+     * Returns the result of task once it is done, rethrowing anything it
+     * threw. Waiting is not cut short by interrupts, but the interrupt
+     * status is kept.
+     */
+    private static int[] await(FutureTask<int[]> task) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return task.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    throw (Error) cause;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
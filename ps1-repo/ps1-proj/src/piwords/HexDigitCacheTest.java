@@ -0,0 +1,90 @@
+package piwords;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class HexDigitCacheTest {
+    @Test
+    public void rangeTest() {
+        HexDigitCache cache = new HexDigitCache(4);
+        int size = HexDigitCache.BLOCK_SIZE;
+        //test a range inside one block, one across blocks, and an empty one
+        assertArrayEquals(PiGenerator.computePiHexBlock(1, 10), cache.getHexDigits(1, 10));
+        assertArrayEquals(PiGenerator.computePiHexBlock(size - 5, 20),
+                          cache.getHexDigits(size - 5, 20));
+        assertArrayEquals(new int[0], cache.getHexDigits(12345, 0));
+        assertEquals(2, cache.blocksComputed());
+        //test that cached blocks are not computed again
+        cache.getHexDigits(3, size);
+        assertEquals(2, cache.blocksComputed());
+        //test the shared cache
+        assertArrayEquals(PiGenerator.computePiInHex(30), PiGenerator.getHexDigits(1, 30));
+    }
+
+    @Test
+    public void evictionTest() {
+        HexDigitCache cache = new HexDigitCache(2);
+        int size = HexDigitCache.BLOCK_SIZE;
+        cache.getHexDigits(0, 1);
+        cache.getHexDigits(size, 1);
+        cache.getHexDigits(0, 1);
+        //test that the least recently used block is the one evicted
+        cache.getHexDigits(2 * size, 1);
+        cache.getHexDigits(0, 1);
+        assertEquals(3, cache.blocksComputed());
+        cache.getHexDigits(size, 1);
+        assertEquals(4, cache.blocksComputed());
+    }
+
+    @Test
+    public void concurrentRequestsTest() throws InterruptedException {
+        final HexDigitCache cache = new HexDigitCache(16);
+        final int size = HexDigitCache.BLOCK_SIZE;
+        final int[] expected = PiGenerator.computePiHexBlock(100, 3 * size);
+        final List<AssertionError> failures = new ArrayList<AssertionError>();
+        List<Thread> threads = new ArrayList<Thread>();
+        //test overlapping ranges from many threads at once
+        for (int t = 0; t < 8; t++) {
+            final int shift = t * 37;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    int[] digits = cache.getHexDigits(100 + shift, 2 * size);
+                    for (int i = 0; i < digits.length; i++) {
+                        if (digits[i] != expected[shift + i]) {
+                            synchronized (failures) {
+                                failures.add(new AssertionError("wrong digit " + i));
+                            }
+                            return;
+                        }
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, failures.size());
+        //test that each of the blocks touched was computed once
+        long lastBlock = (100 + 7 * 37 + 2 * size - 1) / size;
+        assertEquals(lastBlock + 1, cache.blocksComputed());
+    }
+
+    @Test
+    public void invalidInputTest() {
+        HexDigitCache cache = new HexDigitCache(1);
+        boolean threwException = false;
+        try {
+            cache.getHexDigits(-1, 5);
+        } catch (IllegalArgumentException e) {
+            threwException = true;
+        }
+        assertEquals(true, threwException);
+    }
+}
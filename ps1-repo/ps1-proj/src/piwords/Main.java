@@ -6,29 +6,51 @@
 package piwords;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 public class Main {
     public static final int PI_PRECISION = 10000;
     public static final String FREQ_FILE= "txt_files/dict-freq.txt";
+    
+    //Hex digits of pi saved by earlier runs; created on the first run.
+    public static final String PI_STORE_FILE= "txt_files/pi-hex.store";
    
     //Copy of the Ubuntu dictionary found in /usr/share/dict/word 
     //with compound words and accented words filtered out.
     public static final String WORD_FILE= "txt_files/dict.txt";
     
+    //WORD_FILE packed as a CompactDictionary; created on the first run, and
+    //again whenever WORD_FILE is newer.
+    public static final String DICT_FILE= "txt_files/dict.compact";
+    
+    //Digits per window of the chi-square statistics printed for problem 3.
+    public static final int STATISTICS_WINDOW = 1000;
+    
     public static final char[] BASIC_ALPHABET =
         {'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k', 'l', 'm', 'n',
          'o', 'p', 'q', 'r', 's', 't', 'u', 'v', 'w', 'x', 'y', 'z'};
 
     public static void main(String[] args) {
         System.out.println("Problem 1: Calculating Pi...");
-        int[] piHexDigits = PiGenerator.computePiInHex(PI_PRECISION);
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        int[] piHexDigits;
+        try{
+            PiDigitStore store = new PiDigitStore(new File(PI_STORE_FILE));
+            try{
+                piHexDigits = PiGenerator.computePiInHex(PI_PRECISION, parallelism, store);
+            }finally{
+                store.close();
+            }
+        }catch(IOException e){
+            e.printStackTrace();
+            piHexDigits = PiGenerator.computePiInHex(PI_PRECISION, parallelism);
+        }
         System.out.printf(
                 "Digits of Pi in base-16: %s\n\n",
                 MaybeTruncateString(Arrays.toString(piHexDigits), 50));
@@ -41,29 +63,40 @@ public class Main {
                 MaybeTruncateString(Arrays.toString(translatedPiBase26), 50));
         
         System.out.println("Problem 3: Converting Pi using basic alphabet");
+        DigitStatistics base26Statistics = new DigitStatistics(26, STATISTICS_WINDOW);
         String basicConversion = DigitsToStringConverter.convertDigitsToString(
-                translatedPiBase26, 26, BASIC_ALPHABET);
+                translatedPiBase26, 26, BASIC_ALPHABET, base26Statistics);
         System.out.printf(
-                "Digits of Pi translated into a-z: %s\n\n",
+                "Digits of Pi translated into a-z: %s\n",
                 MaybeTruncateString(basicConversion, 50));
+        printStatistics(base26Statistics);
 
         System.out.println("Problem 4: Getting word matches");
         
-        String[] wordList;
+        CompactDictionary dictionary;
         try{
-            wordList= readWordFile(WORD_FILE);
+            File dictFile = new File(DICT_FILE);
+            //rebuild it if the word list changed since it was built
+            if(!dictFile.exists()
+               || new File(WORD_FILE).lastModified() > dictFile.lastModified()){
+                CompactDictionary.build(WORD_FILE, dictFile);
+            }
+            dictionary = new CompactDictionary(dictFile);
         }catch(IOException e){
             e.printStackTrace();
-            wordList=null;
+            return;
         }
+        int numWords = dictionary.size();
+        // one automaton serves both searches below
+        AhoCorasick wordMatcher = new AhoCorasick(dictionary);
         Map<String, Integer> basicSubstrings =
-                WordFinder.findWords(basicConversion, wordList);
+                WordFinder.findWords(basicConversion, wordMatcher);
         for (Map.Entry<String, Integer> entry : basicSubstrings.entrySet()) {
             printWithContext(basicConversion, entry.getValue(),
                              entry.getKey(), 3, true);
         }
         System.out.printf("Word coverage using basic alphabet: %f\n\n",
-                ((double)basicSubstrings.size()) / wordList.length);
+                ((double)basicSubstrings.size()) / numWords);
         
         System.out.println("Problem 5: Getting word matches with base-100 and" +
         		           " frequency dictionary");
@@ -89,24 +122,30 @@ public class Main {
                 MaybeTruncateString(frequencyConversion, 50));
         
         Map<String, Integer> frequencySubstrings =
-                WordFinder.findWords(frequencyConversion, wordList);
+                WordFinder.findWords(frequencyConversion, wordMatcher);
         
-        List<Pair<Integer, String>> foundWords = new ArrayList<Pair<Integer, String>>();
         for (Map.Entry<String, Integer> entry :
              frequencySubstrings.entrySet()) {
             printWithContext(frequencyConversion, entry.getValue(),
                              entry.getKey(), 3, true);
-            foundWords.add(new Pair<Integer, String>(entry.getValue(),entry.getKey()));
         }
         System.out.printf("Word coverage using frequency alphabet: %f\n\n",
-                ((double)frequencySubstrings.size()) / wordList.length);
+                ((double)frequencySubstrings.size()) / numWords);
         
         System.out.println("Problem 6: Sorting word matches by occurance in pi.");
         
-        Collections.sort(foundWords);
+        WordPostings postings = new WordPostings(frequencyConversion, wordMatcher);
         System.out.println("First 10 words found in Pi.");
-        for(int i=0; i<Math.max(10, foundWords.size());i++){
-            System.out.printf("\t "+i+". %s \n", MaybeTruncateString(foundWords.get(i).second, 50) );
+        int[] firstWords = postings.firstK(10);
+        for(int i=0; i<firstWords.length;i++){
+            int id = firstWords[i];
+            System.out.printf("\t "+i+". %s (%d occurrences)\n",
+                    MaybeTruncateString(wordMatcher.needle(id), 50), postings.count(id));
+        }
+        try{
+            dictionary.close();
+        }catch(IOException e){
+            e.printStackTrace();
         }
         
     }
@@ -195,6 +234,28 @@ public class Main {
                ((input.length() > len) ? "..." : "");
     }
 
+    /**
+     * Print the digit frequencies, longest run and chi-square statistics
+     * gathered by statistics, one line each.
+     * 
+     * @param statistics Statistics of a stream of digits.
+     */
+    public static void printStatistics(DigitStatistics statistics) {
+        long[] frequencies = new long[statistics.base()];
+        for (int digit = 0; digit < frequencies.length; digit++) {
+            frequencies[digit] = statistics.frequency(digit);
+        }
+        System.out.printf("Digit frequencies: %s\n",
+                MaybeTruncateString(Arrays.toString(frequencies), 50));
+        System.out.printf("Longest run of one digit: %d\n", statistics.longestRun());
+        double maxWindow = 0;
+        for (int window = 0; window < statistics.numWindows(); window++) {
+            maxWindow = Math.max(maxWindow, statistics.windowChiSquare(window));
+        }
+        System.out.printf("Chi-square: %f overall, %f at most in %d windows\n\n",
+                statistics.chiSquare(), maxWindow, statistics.numWindows());
+    }
+
     /**
      * Pretty print a substring of a string with some context information to
      * either side.
@@ -0,0 +1,293 @@
+package piwords;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Deque;
+
+/**
+ * PiCoordinator hands out ranges of hexadecimal digits of pi to PiWorkers,
+ * which may run in other processes or on other hosts, and assembles the
+ * digits they send back.
+ * 
+ * The protocol is line-based. After a worker connects, and after each of
+ * its results, the coordinator sends one of
+ * 
+ *   range FIRST COUNT   compute COUNT digits starting at position FIRST,
+ *                       numbered as by PiGenerator.piDigit
+ *   done                every digit has been computed; disconnect
+ * 
+ * and the worker answers a range with
+ * 
+ *   digits FIRST HEX    the COUNT digits as hex chars, e.g. 243f6a88
+ * 
+ * A worker that disconnects, times out or answers with anything else is
+ * dropped, and the range it was given is handed to another worker.
+ * 
+ * PiCoordinator is thread-safe: every connection is handled by its own
+ * thread, and the state they share is only touched while holding the
+ * coordinator's lock.
+ */
+public class PiCoordinator {
+    private static final int DEFAULT_RANGE_SIZE = 64 * PiGenerator.BLOCK_DIGITS;
+    private static final int DEFAULT_TIMEOUT_MILLIS = 10 * 60 * 1000;
+
+    private final ServerSocket serverSocket;
+    private final int precision;
+    private final int rangeSize;
+    private final int timeoutMillis;
+    private final DigitBuffer digits;
+    // indices of ranges not yet handed out, or given back by dropped workers
+    private final Deque<Integer> pending = new ArrayDeque<Integer>();
+    private final BitSet done = new BitSet();
+    private final int numRanges;
+    // set when the acceptor thread exits on an error, and when compute()
+    // returns or throws
+    private boolean acceptorFailed = false;
+    private boolean stopped = false;
+
+    // rep invariant: every range index in [0, numRanges) is pending, done,
+    //   or handed to a connected worker, until stopped; digits holds the
+    //   digits of every done range
+
+    /**
+     * Make a coordinator for the first precision digits of pi, listening for
+     * workers on port.
+     * 
+     * @param port port number, requires 0 <= port <= 65535; 0 picks any
+     *             free port.
+     * @param precision The number of digits to compute. Requires
+     *                  precision >= 0.
+     * @param rangeSize The number of digits to hand out at a time. Requires
+     *                  rangeSize >= 1; a multiple of
+     *                  PiGenerator.BLOCK_DIGITS wastes the least work.
+     * @param timeoutMillis How long to wait for a worker's answer before
+     *                      dropping it, or 0 to wait forever.
+     * @throws IOException if the port cannot be listened on.
+     */
+    public PiCoordinator(int port, int precision, int rangeSize, int timeoutMillis)
+            throws IOException {
+        serverSocket = new ServerSocket(port);
+        this.precision = precision;
+        this.rangeSize = rangeSize;
+        this.timeoutMillis = timeoutMillis;
+        digits = new DigitBuffer(16, precision);
+        numRanges = (int) (((long) precision + rangeSize - 1) / rangeSize);
+        for (int r = 0; r < numRanges; r++) {
+            pending.add(r);
+        }
+    }
+
+    /**
+     * @return the port the coordinator listens on.
+     */
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accept workers and hand out ranges until every digit is computed.
+     * 
+     * @return the first precision hexadecimal digits of pi, as
+     *         PiGenerator.computePiInHexPacked would return them.
+     * @throws IOException if the server socket is broken (IOExceptions from
+     *         individual workers only drop that worker).
+     * @throws InterruptedException if interrupted while waiting for workers.
+     */
+    public DigitBuffer compute() throws IOException, InterruptedException {
+        Thread acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (true) {
+                        // block until a worker connects
+                        final Socket socket = serverSocket.accept();
+                        Thread worker = new Thread(new Runnable() {
+                            @Override
+                            public void run() {
+                                try {
+                                    handleConnection(socket);
+                                } catch (IOException e) {
+                                    // the worker is dropped; its range was given back
+                                } finally {
+                                    try {
+                                        socket.close();
+                                    } catch (IOException e) {
+                                        e.printStackTrace();
+                                    }
+                                }
+                            }
+                        });
+                        worker.setDaemon(true);
+                        worker.start();
+                    }
+                } catch (IOException e) {
+                    // the server socket was closed or broke; wake compute()
+                    // so that it notices
+                    synchronized (PiCoordinator.this) {
+                        acceptorFailed = true;
+                        PiCoordinator.this.notifyAll();
+                    }
+                }
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+        try {
+            synchronized (this) {
+                while (done.cardinality() < numRanges) {
+                    if (acceptorFailed || serverSocket.isClosed()) {
+                        throw new SocketException("Coordinator socket closed");
+                    }
+                    wait();
+                }
+                return digits;
+            }
+        } finally {
+            serverSocket.close();
+            // handlers waiting for a range give up once nothing will accept
+            // new workers
+            synchronized (this) {
+                stopped = true;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Hands ranges to one worker until every range is done, giving its
+     * current range back if the worker fails.
+     */
+    private void handleConnection(Socket socket) throws IOException {
+        socket.setSoTimeout(timeoutMillis);
+        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+        PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+        int range;
+        while ((range = takeRange()) >= 0) {
+            boolean accepted = false;
+            try {
+                long first = 1 + (long) range * rangeSize;
+                int count = (int) Math.min(rangeSize, precision - (long) range * rangeSize);
+                out.println("range " + first + " " + count);
+                String line = in.readLine();
+                accepted = line != null && acceptDigits(range, first, count, line);
+            } finally {
+                if (!accepted) {
+                    giveBack(range);
+                }
+            }
+            if (!accepted) {
+                return;
+            }
+        }
+        if (allDone()) {
+            out.println("done");
+        }
+    }
+
+    /**
+     * Returns the index of a range to hand out, waiting while there is none
+     * pending but some are still being computed, or -1 once all are done or
+     * compute() has stopped.
+     */
+    private synchronized int takeRange() {
+        while (pending.isEmpty() && done.cardinality() < numRanges && !stopped) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return -1;
+            }
+        }
+        return (pending.isEmpty() || stopped) ? -1 : pending.removeFirst();
+    }
+
+    private synchronized boolean allDone() {
+        return done.cardinality() == numRanges;
+    }
+
+    private synchronized void giveBack(int range) {
+        if (!done.get(range)) {
+            pending.addFirst(range);
+            notifyAll();
+        }
+    }
+
+    /**
+     * Records the digits in a worker's answer for range, if it is well formed.
+     * 
+     * @return true if the answer was accepted.
+     */
+    private synchronized boolean acceptDigits(int range, long first, int count, String line) {
+        String[] tokens = line.split(" ");
+        if (tokens.length != 3 || !tokens[0].equals("digits")
+                || !tokens[1].equals(Long.toString(first)) || tokens[2].length() != count) {
+            return false;
+        }
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = Character.digit(tokens[2].charAt(i), 16);
+            if (values[i] < 0) {
+                return false;
+            }
+        }
+        if (!done.get(range)) {
+            int offset = (int) (first - 1);
+            for (int i = 0; i < count; i++) {
+                digits.set(offset + i, values[i]);
+            }
+            done.set(range);
+            notifyAll();
+        }
+        return true;
+    }
+
+    /**
+     * Run a coordinator and print the digits once workers have computed them.
+     * 
+     * Usage: PiCoordinator PORT PRECISION [RANGE_SIZE]
+     * 
+     * RANGE_SIZE defaults to 512 digits. Workers are started separately,
+     * with PiWorker HOST PORT, and may come and go while it runs.
+     */
+    public static void main(String[] args) {
+        int port;
+        int precision;
+        int rangeSize = DEFAULT_RANGE_SIZE;
+        try {
+            if (args.length != 2 && args.length != 3) {
+                throw new IllegalArgumentException();
+            }
+            port = Integer.parseInt(args[0]);
+            precision = Integer.parseInt(args[1]);
+            if (args.length == 3) {
+                rangeSize = Integer.parseInt(args[2]);
+            }
+            if (port < 0 || port > 65535 || precision < 0 || rangeSize < 1) {
+                throw new IllegalArgumentException();
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("usage: PiCoordinator PORT PRECISION [RANGE_SIZE]");
+            return;
+        }
+        try {
+            PiCoordinator coordinator =
+                    new PiCoordinator(port, precision, rangeSize, DEFAULT_TIMEOUT_MILLIS);
+            System.out.println("Waiting for workers on port " + coordinator.port());
+            DigitBuffer digits = coordinator.compute();
+            System.out.printf("Digits of Pi in base-16: %s\n", Main.MaybeTruncateString(
+                    DigitsToStringConverter.convertDigitsToString(digits,
+                            "0123456789abcdef".toCharArray()), 50));
+        } catch (IOException e) {
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package piwords;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class PiCoordinatorTest {
+    /**
+     * Starts a thread running a worker for coordinator, which adds the
+     * number of ranges it computed to counts.
+     */
+    private static Thread startWorker(final PiCoordinator coordinator,
+                                      final List<Integer> counts) {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    int ranges = new PiWorker("localhost", coordinator.port(), 1).run();
+                    synchronized (counts) {
+                        counts.add(ranges);
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    @Test(timeout = 60000)
+    public void localWorkersTest() throws IOException, InterruptedException {
+        PiCoordinator coordinator = new PiCoordinator(0, 300, 32, 0);
+        List<Integer> counts = new ArrayList<Integer>();
+        List<Thread> workers = new ArrayList<Thread>();
+        for (int i = 0; i < 3; i++) {
+            workers.add(startWorker(coordinator, counts));
+        }
+        DigitBuffer digits = coordinator.compute();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(PiGenerator.computePiInHexPacked(300, 1), digits);
+        //test that every range was computed by some worker
+        int total = 0;
+        for (int ranges : counts) {
+            total += ranges;
+        }
+        assertEquals(10, total);
+    }
+
+    @Test(timeout = 60000)
+    public void deadWorkerTest() throws IOException, InterruptedException {
+        final PiCoordinator coordinator = new PiCoordinator(0, 100, 16, 0);
+        final List<Integer> counts = new ArrayList<Integer>();
+        // anything thrown by the misbehaving workers, rethrown by the test
+        final Throwable[] failure = new Throwable[1];
+        //a worker that takes a range and dies, then one that sends garbage,
+        //then a healthy worker that should get the dropped ranges
+        Thread workers = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Socket socket = new Socket("localhost", coordinator.port());
+                    BufferedReader in = new BufferedReader(
+                            new InputStreamReader(socket.getInputStream()));
+                    in.readLine();
+                    socket.close();
+
+                    socket = new Socket("localhost", coordinator.port());
+                    in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+                    PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+                    String[] range = in.readLine().split(" ");
+                    out.println("digits " + range[1] + " xyz");
+                    //the coordinator hangs up on a bad answer
+                    assertEquals(null, in.readLine());
+                    socket.close();
+                } catch (Throwable t) {
+                    failure[0] = t;
+                } finally {
+                    // always run the healthy worker, so compute() returns
+                    try {
+                        startWorker(coordinator, counts).join();
+                    } catch (InterruptedException e) {
+                        failure[0] = e;
+                    }
+                }
+            }
+        });
+        workers.start();
+
+        DigitBuffer digits = coordinator.compute();
+        workers.join();
+        if (failure[0] != null) {
+            throw new AssertionError(failure[0]);
+        }
+        assertEquals(PiGenerator.computePiInHexPacked(100, 1), digits);
+        assertEquals(Integer.valueOf(7), counts.get(0));
+    }
+
+    @Test(timeout = 60000)
+    public void interruptedComputeTest() throws IOException, InterruptedException {
+        //test that compute() can be interrupted while no worker connects, and
+        //that a worker connecting afterwards gets no range
+        final PiCoordinator coordinator = new PiCoordinator(0, 100, 16, 0);
+        final boolean[] interrupted = new boolean[1];
+        Thread computing = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    coordinator.compute();
+                } catch (InterruptedException e) {
+                    interrupted[0] = true;
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        computing.start();
+        Thread.sleep(100);
+        computing.interrupt();
+        computing.join();
+        assertEquals(true, interrupted[0]);
+
+        //the listening socket may take a moment to go away, so the worker
+        //is either refused or hung up on without being given a range
+        int ranges = 0;
+        try {
+            ranges = new PiWorker("localhost", coordinator.port(), 1).run();
+        } catch (IOException e) {
+            //refused
+        }
+        assertEquals(0, ranges);
+    }
+
+    @Test(timeout = 60000)
+    public void interruptReleasesWaitingWorkersTest()
+            throws IOException, InterruptedException {
+        //one range, held by a worker that never answers, so a second worker
+        //waits for a range until compute() is interrupted
+        final PiCoordinator coordinator = new PiCoordinator(0, 16, 16, 0);
+        Thread computing = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    coordinator.compute();
+                } catch (InterruptedException e) {
+                    //expected
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        computing.start();
+        Socket holding = new Socket("localhost", coordinator.port());
+        Socket waiting = new Socket("localhost", coordinator.port());
+        try {
+            BufferedReader holdingIn = new BufferedReader(
+                    new InputStreamReader(holding.getInputStream()));
+            assertEquals("range 1 16", holdingIn.readLine());
+            Thread.sleep(100);
+            computing.interrupt();
+            computing.join();
+            //test that the waiting worker is hung up on rather than told done
+            BufferedReader waitingIn = new BufferedReader(
+                    new InputStreamReader(waiting.getInputStream()));
+            assertEquals(null, waitingIn.readLine());
+        } finally {
+            holding.close();
+            waiting.close();
+        }
+    }
+}
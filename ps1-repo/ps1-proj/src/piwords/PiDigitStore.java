@@ -0,0 +1,133 @@
+package piwords;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * PiDigitStore is a file of hexadecimal digits of pi, memory-mapped so that
+ * reading digits computed by an earlier run only costs paging them in.
+ * 
+ * The file is a 16 byte header followed by the digits packed two per byte,
+ * the earlier digit in the high nibble. The header holds a magic number, a
+ * format version and the number of digits stored, as a long. New digits are
+ * written before the count is updated, so an interrupted append leaves the
+ * store as it was.
+ * 
+ * PiDigitStore is thread-safe; all methods are synchronized.
+ */
+public class PiDigitStore implements Closeable {
+    private static final int MAGIC = 0x50494858; // "PIHX"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int COUNT_OFFSET = 8;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long size;
+
+    // rep invariant: buffer maps at least HEADER_SIZE + (size + 1) / 2
+    //   bytes of channel, and the header in buffer records size digits
+
+    /**
+     * Open the store in storeFile, creating an empty one if the file doesn't
+     * exist.
+     * 
+     * @param storeFile The file to keep digits in.
+     * @throws IOException if the file cannot be opened or is not a store.
+     */
+    public PiDigitStore(File storeFile) throws IOException {
+        boolean isNew = !storeFile.exists() || storeFile.length() == 0;
+        file = new RandomAccessFile(storeFile, "rw");
+        channel = file.getChannel();
+        try {
+            if (isNew) {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putLong(COUNT_OFFSET, 0);
+                buffer.force();
+                size = 0;
+            } else {
+                if (channel.size() < HEADER_SIZE) {
+                    throw new IOException("Pi digit store is too short: " + storeFile);
+                }
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+                size = buffer.getLong(COUNT_OFFSET);
+                if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                        || size < 0 || HEADER_SIZE + (size + 1) / 2 > channel.size()) {
+                    throw new IOException("Not a pi digit store: " + storeFile);
+                }
+            }
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of digits in the store.
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Returns the first count digits in the store.
+     * 
+     * @param count The number of digits to read. Requires 0 <= count <= size().
+     * @return count hex digits of pi, starting with the first digit after the
+     *         decimal point.
+     */
+    public synchronized int[] read(int count) {
+        int[] digits = new int[count];
+        for (int i = 0; i < count; i++) {
+            int packed = buffer.get(HEADER_SIZE + i / 2);
+            digits[i] = (i % 2 == 0) ? (packed >> 4) & 0xF : packed & 0xF;
+        }
+        return digits;
+    }
+
+    /**
+     * Appends digits to the store, making them durable before returning.
+     * 
+     * @param digits The digits following the ones already stored. This array
+     *               is not mutated. Requires every element to be in [0, 16).
+     * @throws IOException if the file cannot be extended.
+     */
+    public synchronized void append(int[] digits) throws IOException {
+        long newSize = size + digits.length;
+        long needed = HEADER_SIZE + (newSize + 1) / 2;
+        if (needed > buffer.capacity()) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, needed);
+        }
+        for (int i = 0; i < digits.length; i++) {
+            long n = size + i;
+            int index = (int) (HEADER_SIZE + n / 2);
+            int packed = buffer.get(index);
+            if (n % 2 == 0) {
+                packed = (digits[i] << 4) | (packed & 0x0F);
+            } else {
+                packed = (packed & 0xF0) | digits[i];
+            }
+            buffer.put(index, (byte) packed);
+        }
+        buffer.force();
+        buffer.putLong(COUNT_OFFSET, newSize);
+        buffer.force();
+        size = newSize;
+    }
+
+    /**
+     * Close the underlying file. The store must not be used afterwards.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+        file.close();
+    }
+}
@@ -0,0 +1,98 @@
+package piwords;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class PiDigitStoreTest {
+    @Test
+    public void appendAndReadTest() throws IOException {
+        File storeFile = File.createTempFile("pi-hex", ".store");
+        storeFile.delete();
+        try {
+            PiDigitStore store = new PiDigitStore(storeFile);
+            assertEquals(0, store.size()); //test that a new store is empty
+            //test an odd number of digits, then an append that fills the last byte
+            store.append(new int[]{2, 4, 3});
+            store.append(new int[]{15, 6, 10, 8});
+            assertEquals(7, store.size());
+            assertArrayEquals(new int[]{2, 4, 3, 15, 6, 10, 8}, store.read(7));
+            assertArrayEquals(new int[]{2, 4}, store.read(2));
+            store.close();
+            
+            //test that the digits survive reopening
+            store = new PiDigitStore(storeFile);
+            assertEquals(7, store.size());
+            assertArrayEquals(new int[]{2, 4, 3, 15, 6, 10, 8}, store.read(7));
+            store.close();
+        } finally {
+            storeFile.delete();
+        }
+    }
+
+    @Test
+    public void computePiInHexWithStoreTest() throws IOException {
+        File storeFile = File.createTempFile("pi-hex", ".store");
+        storeFile.delete();
+        try {
+            PiDigitStore store = new PiDigitStore(storeFile);
+            //test that missing digits are computed and saved
+            assertArrayEquals(PiGenerator.computePiInHex(100),
+                              PiGenerator.computePiInHex(100, 2, store));
+            assertEquals(100, store.size());
+            //test that fewer digits come from the store without growing it
+            assertArrayEquals(PiGenerator.computePiInHex(40),
+                              PiGenerator.computePiInHex(40, 2, store));
+            assertEquals(100, store.size());
+            //test that only the tail is appended for more digits
+            assertArrayEquals(PiGenerator.computePiInHex(150),
+                              PiGenerator.computePiInHex(150, 2, store));
+            assertEquals(150, store.size());
+            store.close();
+        } finally {
+            storeFile.delete();
+        }
+    }
+
+    @Test
+    public void longTailWithStoreTest() throws IOException {
+        File storeFile = File.createTempFile("pi-hex", ".store");
+        storeFile.delete();
+        try {
+            PiDigitStore store = new PiDigitStore(storeFile);
+            store.append(PiGenerator.computePiInHex(5));
+            //test a tail long enough to be cut from a Chudnovsky evaluation
+            int precision = 5 + PiGenerator.CHUDNOVSKY_THRESHOLD + 100;
+            int[] expected = PiGenerator.computePiInHex(precision, 1);
+            assertArrayEquals(expected, PiGenerator.computePiInHex(precision, 2, store));
+            assertEquals(precision, store.size());
+            assertArrayEquals(expected, store.read(precision));
+            store.close();
+        } finally {
+            storeFile.delete();
+        }
+    }
+
+    @Test
+    public void notAStoreTest() throws IOException {
+        File storeFile = File.createTempFile("pi-hex", ".store");
+        try {
+            FileWriter writer = new FileWriter(storeFile);
+            writer.write("this is not a store at all");
+            writer.close();
+            boolean threwException = false;
+            try {
+                new PiDigitStore(storeFile);
+            } catch (IOException e) {
+                threwException = true;
+            }
+            assertEquals(true, threwException);
+        } finally {
+            storeFile.delete();
+        }
+    }
+}
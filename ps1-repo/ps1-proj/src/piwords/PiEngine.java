@@ -0,0 +1,28 @@
+package piwords;
+
+/**
+ * A PiEngine is a way of computing the leading hexadecimal digits of pi.
+ * 
+ * PiGenerator.selectEngine picks the engine that is fastest for a given
+ * number of digits.
+ */
+public interface PiEngine {
+    /**
+     * Returns precision hexadecimal digits of the fractional part of pi.
+     * Returns digits in most significant to least significant order.
+     * 
+     * @param precision The number of digits after the decimal place to
+     *                  retrieve. Requires precision >= 0.
+     * @return precision digits of pi in hexadecimal.
+     */
+    int[] computePiInHex(int precision);
+
+    /**
+     * Like computePiInHex, but returns the digits nibble-packed.
+     * 
+     * @param precision The number of digits after the decimal place to
+     *                  retrieve. Requires precision >= 0.
+     * @return a base-16 buffer of precision digits of pi.
+     */
+    DigitBuffer computePiInHexPacked(int precision);
+}
@@ -0,0 +1,60 @@
+package piwords;
+
+import static org.junit.Assert.*;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class PiEngineTest {
+    @Test
+    public void enginesAgreeTest() {
+        //test that both engines produce the same digits, serially and in parallel
+        PiEngine bbp = new BbpPiEngine(1);
+        for (int precision : new int[]{0, 1, 7, 200, 700}) {
+            int[] expected = bbp.computePiInHex(precision);
+            assertArrayEquals(expected, new BbpPiEngine(3).computePiInHex(precision));
+            assertArrayEquals(expected, new ChudnovskyPiEngine(1).computePiInHex(precision));
+            assertArrayEquals(expected, new ChudnovskyPiEngine(4).computePiInHex(precision));
+            //test the packed versions too
+            assertEquals(DigitBuffer.fromArray(expected, 16), bbp.computePiInHexPacked(precision));
+            assertEquals(DigitBuffer.fromArray(expected, 16),
+                         new ChudnovskyPiEngine(2).computePiInHexPacked(precision));
+            assertEquals(DigitBuffer.fromArray(expected, 16),
+                         PiGenerator.computePiInHexPacked(precision, 2));
+        }
+    }
+
+    @Test
+    public void chudnovskyTest() {
+        //pi = 3.243F6A8885A308D313198A2E03707344A... in hexadecimal
+        int[] expected = {2, 4, 3, 15, 6, 10, 8, 8, 8, 5, 10, 3, 0, 8, 13, 3, 1, 3, 1, 9};
+        assertArrayEquals(expected, new ChudnovskyPiEngine(2).computePiInHex(20));
+        //test the last digits of a long run against BBP
+        int[] longPi = new ChudnovskyPiEngine(2).computePiInHex(20000);
+        assertArrayEquals(PiGenerator.computePiHexBlock(19990, 11),
+                Arrays.copyOfRange(longPi, 19989, 20000));
+    }
+
+    @Test
+    public void selectEngineTest() {
+        assertEquals(true, PiGenerator.selectEngine(1, 1) instanceof BbpPiEngine);
+        assertEquals(true, PiGenerator.selectEngine(
+                PiGenerator.CHUDNOVSKY_THRESHOLD, 1) instanceof ChudnovskyPiEngine);
+    }
+
+    @Test
+    public void sqrtTest() {
+        assertEquals(BigInteger.ZERO, ChudnovskyPiEngine.sqrt(BigInteger.ZERO));
+        assertEquals(BigInteger.valueOf(3), ChudnovskyPiEngine.sqrt(BigInteger.valueOf(15)));
+        assertEquals(BigInteger.valueOf(4), ChudnovskyPiEngine.sqrt(BigInteger.valueOf(16)));
+        //test squares and their neighbours well past the range of a long
+        BigInteger root = BigInteger.ONE.shiftLeft(500).add(BigInteger.valueOf(12345));
+        BigInteger square = root.multiply(root);
+        assertEquals(root, ChudnovskyPiEngine.sqrt(square));
+        assertEquals(root, ChudnovskyPiEngine.sqrt(square.add(root)));
+        assertEquals(root.subtract(BigInteger.ONE),
+                     ChudnovskyPiEngine.sqrt(square.subtract(BigInteger.ONE)));
+    }
+}
@@ -1,7 +1,34 @@
 package piwords;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class PiGenerator {
+    // Number of hex digits taken from each BBP evaluation in
+    // computePiHexBlock. The double-double sums are accurate to better than
+    // 2^-80 at positions up to 10^7, far below the 4 * BLOCK_DIGITS bits kept.
+    static final int BLOCK_DIGITS = 8;
+
+    // Largest modulus accepted by the long powerMod. Products of two residues
+    // then stay within the range where a double quotient is off by at most 1.
+    static final long MAX_LONG_MODULUS = 1L << 50;
+
+    // From this many digits on, computing them all at once with the
+    // Chudnovsky series is faster than computing each one with BBP.
+    static final int CHUDNOVSKY_THRESHOLD = 128;
+
+    // With a checkpoint, digits are computed in chunks of this many, and the
+    // finished chunks are saved whenever this long has passed since the last
+    // save.
+    static final int CHECKPOINT_CHUNK = 128 * BLOCK_DIGITS;
+    static final long CHECKPOINT_INTERVAL_MILLIS = 60 * 1000;
+
     /**
      * Returns precision hexadecimal digits of the fractional part of pi.
      * Returns digits in most significant to least significant order.
@@ -11,12 +38,302 @@ public class PiGenerator {
      * @return precision digits of pi in hexadecimal.
      */
     public static int[] computePiInHex(int precision) {
-    	int[] result = new int[precision];
-    	for (int i = 0; i < precision; i++) {
-    		//use index i+1 because we're skipping the integer part of pi
-    		result[i] = piDigit(i+1);
-    	}
-    	return result;
+        return selectEngine(precision, 1).computePiInHex(precision);
+    }
+
+    /**
+     * Returns precision hexadecimal digits of the fractional part of pi,
+     * computed on up to parallelism threads. The result is identical to
+     * computePiInHex(precision).
+     * 
+     * @param precision The number of digits after the decimal place to
+     *                  retrieve. Requires precision >= 0.
+     * @param parallelism The number of threads to compute digits on.
+     *                    Requires parallelism >= 1.
+     * @return precision digits of pi in hexadecimal.
+     */
+    public static int[] computePiInHex(int precision, int parallelism) {
+        return selectEngine(precision, parallelism).computePiInHex(precision);
+    }
+
+    /**
+     * Like computePiInHex(precision, parallelism), but returns the digits
+     * nibble-packed.
+     * 
+     * @param precision The number of digits after the decimal place to
+     *                  retrieve. Requires precision >= 0.
+     * @param parallelism The number of threads to compute digits on.
+     *                    Requires parallelism >= 1.
+     * @return a base-16 buffer of precision digits of pi.
+     */
+    public static DigitBuffer computePiInHexPacked(int precision, int parallelism) {
+        return selectEngine(precision, parallelism).computePiInHexPacked(precision);
+    }
+
+    /**
+     * Returns the fastest engine for computing precision digits of pi.
+     * 
+     * @param precision The number of digits that will be computed. Requires
+     *                  precision >= 0.
+     * @param parallelism The number of threads the engine may use. Requires
+     *                    parallelism >= 1.
+     * @return an engine for computing the first precision digits of pi.
+     */
+    public static PiEngine selectEngine(int precision, int parallelism) {
+        if (precision < CHUDNOVSKY_THRESHOLD) {
+            return new BbpPiEngine(parallelism);
+        }
+        return new ChudnovskyPiEngine(parallelism);
+    }
+
+    /**
+     * Returns precision hexadecimal digits of the fractional part of pi,
+     * reading as many as possible from store and computing only the rest,
+     * which are then appended to store.
+     * 
+     * @param precision The number of digits after the decimal place to
+     *                  retrieve. Requires precision >= 0.
+     * @param parallelism The number of threads to compute missing digits on.
+     *                    Requires parallelism >= 1.
+     * @param store The store to read digits from and save new digits to.
+     * @return precision digits of pi in hexadecimal.
+     * @throws IOException if store cannot be read or written.
+     */
+    public static int[] computePiInHex(int precision, int parallelism,
+                                       PiDigitStore store) throws IOException {
+        int stored = (int) Math.min(precision, store.size());
+        int[] result = new int[precision];
+        System.arraycopy(store.read(stored), 0, result, 0, stored);
+        if (stored < precision) {
+            int[] tail;
+            if (precision - stored < CHUDNOVSKY_THRESHOLD) {
+                tail = computePiHexRange(stored + 1, precision - stored,
+                                         parallelism);
+            } else {
+                // a long tail is cheaper to cut from a fresh series
+                // evaluation than to compute digit by digit
+                int[] all = selectEngine(precision, parallelism).computePiInHex(precision);
+                tail = Arrays.copyOfRange(all, stored, precision);
+            }
+            store.append(tail);
+            System.arraycopy(tail, 0, result, stored, tail.length);
+        }
+        return result;
+    }
+
+    /**
+     * Returns precision hexadecimal digits of the fractional part of pi,
+     * computed with BBP and saving progress to checkpoint now and then. If
+     * checkpoint holds the progress of an earlier call for the same
+     * precision that didn't finish, only the digits it was missing are
+     * computed. The checkpoint is deleted once all digits are computed.
+     * 
+     * @param precision The number of digits after the decimal place to
+     *                  retrieve. Requires precision >= 0.
+     * @param parallelism The number of threads to use. Requires
+     *                    parallelism >= 1.
+     * @param checkpoint The file to save progress to and resume from.
+     * @return precision digits of pi in hexadecimal.
+     * @throws IOException if checkpoint cannot be read or written.
+     */
+    public static int[] computePiInHex(int precision, int parallelism,
+                                       File checkpoint) throws IOException {
+        return computePiHexRange(1, precision, parallelism,
+                new CheckpointFile(checkpoint, CheckpointFile.PI_DIGITS),
+                CHECKPOINT_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Like computePiHexRange(long, int, int), but computes the digits a chunk
+     * at a time, saving the finished chunks to checkpoint after any chunk
+     * that ends at least intervalMillis after the last save.
+     */
+    static int[] computePiHexRange(final long first, final int count, int parallelism,
+                                   CheckpointFile checkpoint, long intervalMillis)
+                                   throws IOException {
+        final int[] result = new int[count];
+        final BitSet done = loadDigitChunks(checkpoint, first, count, result);
+        int numChunks = (count + CHECKPOINT_CHUNK - 1) / CHECKPOINT_CHUNK;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            long lastSave = System.currentTimeMillis();
+            for (int chunk = done.nextClearBit(0); chunk < numChunks;
+                 chunk = done.nextClearBit(chunk + 1)) {
+                int start = chunk * CHECKPOINT_CHUNK;
+                int end = Math.min(count, start + CHECKPOINT_CHUNK);
+                pool.invoke(new DigitRangeTask(result, first, start, end));
+                done.set(chunk);
+                if (System.currentTimeMillis() - lastSave >= intervalMillis) {
+                    checkpoint.save(new CheckpointFile.Contents() {
+                        public void writeTo(DataOutputStream out) throws IOException {
+                            out.writeLong(first);
+                            out.writeInt(count);
+                            out.writeInt(CHECKPOINT_CHUNK);
+                            long[] bits = done.toLongArray();
+                            out.writeInt(bits.length);
+                            for (long word : bits) {
+                                out.writeLong(word);
+                            }
+                            for (int i = 0; i < count; i += 2) {
+                                int low = (i + 1 < count) ? result[i + 1] : 0;
+                                out.writeByte((result[i] << 4) | low);
+                            }
+                        }
+                    });
+                    lastSave = System.currentTimeMillis();
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        checkpoint.delete();
+        return result;
+    }
+
+    /**
+     * Reads the chunks of digits finished by an earlier computation of the
+     * same range from checkpoint into result.
+     * 
+     * @return the set of finished chunks, which is empty if there is no
+     *         checkpoint or it is for a different range.
+     */
+    private static BitSet loadDigitChunks(CheckpointFile checkpoint, long first,
+                                          int count, int[] result) throws IOException {
+        DataInputStream in = checkpoint.load();
+        if (in == null) {
+            return new BitSet();
+        }
+        try {
+            if (in.readLong() != first || in.readInt() != count
+                    || in.readInt() != CHECKPOINT_CHUNK) {
+                return new BitSet();
+            }
+            long[] bits = new long[in.readInt()];
+            for (int i = 0; i < bits.length; i++) {
+                bits[i] = in.readLong();
+            }
+            for (int i = 0; i < count; i += 2) {
+                int b = in.readUnsignedByte();
+                result[i] = b >> 4;
+                if (i + 1 < count) {
+                    result[i + 1] = b & 0xF;
+                }
+            }
+            return BitSet.valueOf(bits);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Returns count hex digits of pi starting at position first, computed
+     * with BBP on up to parallelism threads.
+     */
+    static int[] computePiHexRange(long first, int count, int parallelism) {
+        if (parallelism == 1) {
+            // no pool, so all the work stays on the calling thread
+            return computePiHexBlock(first, count);
+        }
+        int[] result = new int[count];
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new DigitRangeTask(result, first, 0, count));
+        } finally {
+            pool.shutdown();
+        }
+        return result;
+    }
+
+    /**
+     * Fills result[start..end) with hex digits of pi, result[i] being digit
+     * first + i, splitting the range in two until it is small enough to
+     * compute directly.
+     */
+    private static class DigitRangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        // Ranges this short are not worth handing to another thread.
+        private static final int MIN_CHUNK = 4 * BLOCK_DIGITS;
+
+        private final int[] result;
+        private final long first;
+        private final int start;
+        private final int end;
+
+        DigitRangeTask(int[] result, long first, int start, int end) {
+            this.result = result;
+            this.first = first;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= MIN_CHUNK) {
+                int[] digits = computePiHexBlock(first + start, end - start);
+                System.arraycopy(digits, 0, result, start, digits.length);
+                return;
+            }
+            // The cost of digit n grows roughly linearly in n, so the work for
+            // digits s..e grows with e^2 - s^2. Split where both halves get
+            // the same amount of work rather than the same number of digits.
+            double s = first + start;
+            double e = first + end;
+            int mid = (int) (Math.sqrt((s*s + e*e) / 2) - first);
+            // keep split points on block boundaries so no block is cut short
+            mid -= mid % BLOCK_DIGITS;
+            mid = Math.max(start + 1, Math.min(end - 1, mid));
+            invokeAll(new DigitRangeTask(result, first, start, mid),
+                      new DigitRangeTask(result, first, mid, end));
+        }
+    }
+
+    /**
+     * Returns length consecutive hexadecimal digits of pi, starting with the
+     * offset-th digit as numbered by piDigit. Digits are computed in blocks
+     * that are cached and shared by all callers, so ranges that overlap
+     * earlier ones, or ones being computed by other threads, only cost the
+     * blocks not seen before.
+     * 
+     * @param offset The position of the first digit to retrieve.
+     * @param length The number of digits to retrieve.
+     * @return length digits of pi in base-16, most significant first.
+     * @throws IllegalArgumentException when offset or length is less than 0.
+     */
+    public static int[] getHexDigits(long offset, int length)
+            throws IllegalArgumentException {
+        return SharedDigitCache.INSTANCE.getHexDigits(offset, length);
+    }
+
+    /**
+     * Holds the cache behind getHexDigits, created on first use.
+     */
+    private static class SharedDigitCache {
+        // about 1M digits
+        static final HexDigitCache INSTANCE = new HexDigitCache(2048);
+    }
+
+    /**
+     * Returns count consecutive hexadecimal digits of pi, starting with the
+     * start-th digit as numbered by piDigit. Each BBP evaluation is carried
+     * out in double-double (roughly 106-bit) precision and yields
+     * BLOCK_DIGITS digits at once instead of one.
+     * 
+     * @param start The position of the first digit to retrieve.
+     * @param count The number of digits to retrieve.
+     * @return count digits of pi in base-16, most significant first.
+     * @throws IllegalArgumentException when start or count is less than 0.
+     */
+    public static int[] computePiHexBlock(long start, int count)
+            throws IllegalArgumentException {
+        if (start < 0 || count < 0) {
+            throw new IllegalArgumentException(
+                    "start and count passed into computePiHexBlock must be >= 0");
+        }
+        int[] result = new int[count];
+        for (int i = 0; i < count; i += BLOCK_DIGITS) {
+            piDigitBlock(start + i, result, i, Math.min(BLOCK_DIGITS, count - i));
+        }
+        return result;
     }
 
     /**
@@ -41,6 +358,54 @@ public class PiGenerator {
         }
     }
     
+    /**
+     * Computes a^b mod m for 64-bit arguments, iteratively.
+     * 
+     * Each product is reduced Barrett-style: the quotient is estimated with a
+     * precomputed floating point reciprocal of m, and the remainder is then
+     * corrected exactly in long arithmetic.
+     * 
+     * @param a base; requires that a >= 0;
+     * @param b exponent; requires that b >= 0;
+     * @param m divisor for modulo operation; requires m > 0;
+     * @return a^b mod m
+     * @throws IllegalArgumentException when m is greater than MAX_LONG_MODULUS.
+     */
+    public static long powerMod(long a, long b, long m) throws IllegalArgumentException {
+        if (m > MAX_LONG_MODULUS) {
+            throw new IllegalArgumentException("m passed into powerMod is too large");
+        }
+        double inverse = 1.0 / m;
+        long base = a % m;
+        long result = 1 % m;
+        while (b > 0) {
+            if ((b & 1) != 0) {
+                result = mulMod(result, base, m, inverse);
+            }
+            base = mulMod(base, base, m, inverse);
+            b >>= 1;
+        }
+        return result;
+    }
+
+    /**
+     * Computes x*y mod m, where 0 <= x, y < m <= MAX_LONG_MODULUS and inverse
+     * is 1.0 / m.
+     */
+    private static long mulMod(long x, long y, long m, double inverse) {
+        long q = (long) ((double) x * y * inverse);
+        // x*y - q*m overflows, but its true value is within a couple of m of
+        // zero, so the wrapped-around long arithmetic still gets it exactly
+        long r = x * y - q * m;
+        while (r < 0) {
+            r += m;
+        }
+        while (r >= m) {
+            r -= m;
+        }
+        return r;
+    }
+    
     /**
      * Computes the nth digit of Pi in base-16.
      * 
@@ -49,31 +414,64 @@ public class PiGenerator {
      * @throws IllegalArgumentException when n is less than 0;
      */
     public static int piDigit(int n) throws IllegalArgumentException {
+        return piDigit((long) n);
+    }
+
+    /**
+     * Computes the nth digit of Pi in base-16, for positions beyond the range
+     * of an int. The sums are done in double, and only a digit that double
+     * precision can't be sure of is recomputed in double-double.
+     * 
+     * @param n The digit of Pi to retrieve in base-16.
+     * @return The nth digit of Pi in base-16.
+     * @throws IllegalArgumentException when n is less than 0;
+     */
+    public static int piDigit(long n) throws IllegalArgumentException {
         if (n < 0) throw new IllegalArgumentException("n less than passed into piDigit");
         
         n -= 1;
         double x = 4 * piTerm(1, n) - 2 * piTerm(4, n) -
                    piTerm(5, n) - piTerm(6, n);
         x = x - Math.floor(x);
+        if (nearDigitBoundary(x, n)) {
+            // the double sums can't tell which side of the boundary pi is on
+            return computePiHexBlock(n + 1, 1)[0];
+        }
         
         return (int)(x * 16);
     }
+
+    /**
+     * Returns true if x, the fractional part of 16^n pi as computed in
+     * double by piDigit, might be on the wrong side of a multiple of 1/16
+     * because of rounding.
+     * 
+     * Each of the n + 1 left sum terms of the four piTerm sums adds a few
+     * ulps of error, and the sums are weighted 4 + 2 + 1 + 1.
+     */
+    static boolean nearDigitBoundary(double x, long n) {
+        double error = 8 * 4 * (n + 1) * 0x1p-53;
+        double scaled = x * 16;
+        double distance = Math.min(scaled - Math.floor(scaled),
+                                   Math.ceil(scaled) - scaled);
+        return distance < 16 * error;
+    }
     
-    private static double piTerm(int j, int n) {
+    private static double piTerm(int j, long n) {
         // Calculate the left sum
         double s = 0;
-        for (int k = 0; k <= n; ++k) {
-            int r = 8 * k + j;
+        for (long k = 0; k <= n; ++k) {
+            long r = 8 * k + j;
             s += powerMod(16, n-k, r) / (double) r;
             s = s - Math.floor(s);
         }
         
         // Calculate the right sum
         double t = 0;
-        int k = n+1;
+        long k = n+1;
         // Keep iterating until t converges (stops changing)
         while (true) {
-            int r = 8 * k + j;
+            long r = 8 * k + j;
             double newt = t + Math.pow(16, n-k) / r;
             if (t == newt) {
                 break;
@@ -85,4 +483,116 @@ public class PiGenerator {
         
         return s+t;
     }
+    
+    /*
+     * Double-double arithmetic. A value is held as an unevaluated sum hi + lo
+     * of two doubles with |lo| <= ulp(hi) / 2, stored in a double[2] so that
+     * the BBP loops can reuse one array instead of allocating per term.
+     */
+
+    /**
+     * Writes digits n .. n+length-1 of pi in base-16 into out, starting at
+     * out[offset], from a single double-double BBP evaluation.
+     */
+    private static void piDigitBlock(long n, int[] out, int offset, int length) {
+        n -= 1;
+        double[] x = new double[2];
+        double[] term = new double[2];
+        ddPiTerm(1, n, term);
+        ddAdd(x, 4 * term[0], 4 * term[1]);
+        ddPiTerm(4, n, term);
+        ddAdd(x, -2 * term[0], -2 * term[1]);
+        ddPiTerm(5, n, term);
+        ddAdd(x, -term[0], -term[1]);
+        ddPiTerm(6, n, term);
+        ddAdd(x, -term[0], -term[1]);
+        ddFrac(x);
+
+        for (int i = 0; i < length; i++) {
+            // scaling by 16 is exact, so only the subtraction can round
+            x[0] *= 16;
+            x[1] *= 16;
+            int digit = (int) Math.floor(x[0]);
+            if (digit == x[0] && x[1] < 0) {
+                digit--;
+            }
+            out[offset + i] = digit;
+            ddAdd(x, -digit, 0);
+        }
+    }
+
+    /**
+     * Double-double version of piTerm. Stores the fractional part of the sum
+     * in s.
+     */
+    private static void ddPiTerm(int j, long n, double[] s) {
+        double[] q = new double[2];
+        s[0] = 0;
+        s[1] = 0;
+        for (long k = 0; k <= n; ++k) {
+            long r = 8 * k + j;
+            ddQuotient(powerMod(16, n-k, r), r, q);
+            ddAdd(s, q[0], q[1]);
+            ddFrac(s);
+        }
+
+        // 16^(n-k) is a power of two, so it is exact as a double; stop once
+        // the terms are far below the precision of the sum
+        for (long k = n+1; ; ++k) {
+            long r = 8 * k + j;
+            double p = Math.pow(16, n-k);
+            if (p < 0x1p-120) {
+                break;
+            }
+            ddQuotient(p, r, q);
+            ddAdd(s, q[0], q[1]);
+        }
+        ddFrac(s);
+    }
+
+    /**
+     * Stores p / r in q as a double-double.
+     */
+    private static void ddQuotient(double p, double r, double[] q) {
+        double q1 = p / r;
+        // compute q1 * r exactly as prodHi + prodLo (Dekker's product)
+        double prodHi = q1 * r;
+        double t = SPLITTER * q1;
+        double q1Hi = t - (t - q1);
+        double q1Lo = q1 - q1Hi;
+        t = SPLITTER * r;
+        double rHi = t - (t - r);
+        double rLo = r - rHi;
+        double prodLo = ((q1Hi * rHi - prodHi) + q1Hi * rLo + q1Lo * rHi) + q1Lo * rLo;
+        // the remainder p - q1 * r is small enough that this is nearly exact
+        double remainder = (p - prodHi) - prodLo;
+        q[0] = q1;
+        q[1] = remainder / r;
+    }
+
+    // 2^27 + 1, used to split a double into two 26-bit halves
+    private static final double SPLITTER = 134217729.0;
+
+    /**
+     * Adds bHi + bLo to the double-double in acc.
+     */
+    private static void ddAdd(double[] acc, double bHi, double bLo) {
+        double s = acc[0] + bHi;
+        double bb = s - acc[0];
+        double e = (acc[0] - (s - bb)) + (bHi - bb);
+        e += acc[1] + bLo;
+        acc[0] = s + e;
+        acc[1] = e - (acc[0] - s);
+    }
+
+    /**
+     * Replaces the double-double in acc with its fractional part, in [0, 1).
+     */
+    private static void ddFrac(double[] acc) {
+        // hi - floor(hi) is exact, so this only moves the integer part
+        ddAdd(acc, -Math.floor(acc[0]), 0);
+        if (acc[0] < 0 || (acc[0] == 0 && acc[1] < 0)) {
+            ddAdd(acc, 1, 0);
+        }
+    }
 }
@@ -2,6 +2,10 @@ package piwords;
 
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+
 import org.junit.Test;
 
 public class PiGeneratorTest {
@@ -35,4 +39,119 @@ public class PiGeneratorTest {
     	assertEquals(PiGenerator.piDigit(11), precisePi[10]); //test middle digit for fairly precise pi
     	assertEquals(PiGenerator.piDigit(1000), precisePi[999]); //test last digit for fairly precise pi
     }
+    
+    @Test
+    public void parallelComputePiInHexTest() {
+        int[] sequentialPi = PiGenerator.computePiHexBlock(1, 500);
+        //test several thread counts of the BBP split against the sequential result
+        assertArrayEquals(sequentialPi, PiGenerator.computePiHexRange(1, 500, 1));
+        assertArrayEquals(sequentialPi, PiGenerator.computePiHexRange(1, 500, 3));
+        assertArrayEquals(sequentialPi, new BbpPiEngine(8).computePiInHex(500));
+        //test that the engine picked for this precision agrees in parallel too
+        assertArrayEquals(sequentialPi, PiGenerator.computePiInHex(500, 3));
+        //test ranges shorter than a single chunk
+        assertEquals(0, PiGenerator.computePiInHex(0, 4).length);
+        assertArrayEquals(PiGenerator.computePiInHex(5), PiGenerator.computePiInHex(5, 4));
+    }
+    
+    @Test
+    public void computePiHexBlockTest() {
+        //pi = 3.243F6A8885A308D313198A2E03707344A... in hexadecimal
+        int[] expected = {3, 2, 4, 3, 15, 6, 10, 8, 8, 8, 5, 10, 3, 0, 8, 13, 3, 1, 3, 1};
+        assertArrayEquals(expected, PiGenerator.computePiHexBlock(0, 20)); //test from the integer part
+        assertEquals(0, PiGenerator.computePiHexBlock(5, 0).length); //test for no digits
+        //test a range that starts and ends in the middle of a block
+        assertArrayEquals(new int[]{15, 6, 10, 8, 8, 8, 5, 10, 3, 0, 8},
+                PiGenerator.computePiHexBlock(4, 11));
+        //test that every digit in a longer range agrees with piDigit
+        int[] block = PiGenerator.computePiHexBlock(990, 50);
+        for (int i = 0; i < block.length; i++) {
+            assertEquals(PiGenerator.piDigit(990 + i), block[i]);
+        }
+        boolean threwException = false;
+        try {
+            PiGenerator.computePiHexBlock(-1, 5);
+        } catch (IllegalArgumentException e) {
+            threwException = true;
+        }
+        assertEquals(true, threwException);
+    }
+    
+    @Test
+    public void longPowerModTest() {
+        assertEquals(17L, PiGenerator.powerMod(5L, 7L, 23L)); //test against the int version
+        assertEquals(0L, PiGenerator.powerMod(5L, 0L, 1L)); //test modulus 1
+        assertEquals(1L, PiGenerator.powerMod(16L, 0L, 8000000001L)); //test n^0
+        //test moduli and exponents beyond the range of an int, against BigInteger
+        long[][] cases = {{16, 3000000000L, 8000000001L},
+                          {16, 123456789012L, 987654321098765L},
+                          {999999999989L, 999999999989L, PiGenerator.MAX_LONG_MODULUS - 1}};
+        for (long[] c : cases) {
+            long expected = BigInteger.valueOf(c[0]).modPow(
+                    BigInteger.valueOf(c[1]), BigInteger.valueOf(c[2])).longValue();
+            assertEquals(expected, PiGenerator.powerMod(c[0], c[1], c[2]));
+        }
+        boolean threwException = false;
+        try {
+            PiGenerator.powerMod(2L, 2L, PiGenerator.MAX_LONG_MODULUS + 1);
+        } catch (IllegalArgumentException e) {
+            threwException = true;
+        }
+        assertEquals(true, threwException);
+    }
+
+    @Test
+    public void largeOffsetPiDigitTest() {
+        //published hex digits of pi starting at position 10^6:  26C65E52CB4593
+        int[] expected = {2, 6, 12, 6, 5, 14, 5, 2, 12, 11, 4, 5, 9, 3};
+        assertArrayEquals(expected, PiGenerator.computePiHexBlock(1000000L, 14));
+        assertEquals(2, PiGenerator.piDigit(1000000L));
+    }
+
+    @Test
+    public void checkpointResumeTest() throws IOException {
+        File checkpointFile = File.createTempFile("pi-hex", ".checkpoint");
+        checkpointFile.delete();
+        int precision = 2 * PiGenerator.CHECKPOINT_CHUNK + 100;
+        try {
+            //test a run that dies after saving its first checkpoint
+            CheckpointFile dying = new CheckpointFile(checkpointFile, CheckpointFile.PI_DIGITS) {
+                @Override
+                void save(Contents contents) throws IOException {
+                    super.save(contents);
+                    throw new IOException("process died");
+                }
+            };
+            boolean threwException = false;
+            try {
+                PiGenerator.computePiHexRange(1, precision, 2, dying, 0);
+            } catch (IOException e) {
+                threwException = true;
+            }
+            assertEquals(true, threwException);
+            assertEquals(true, checkpointFile.exists());
+
+            //test that resuming gives the same digits and removes the checkpoint
+            assertArrayEquals(PiGenerator.computePiInHex(precision),
+                              PiGenerator.computePiInHex(precision, 2, checkpointFile));
+            assertEquals(false, checkpointFile.exists());
+        } finally {
+            checkpointFile.delete();
+        }
+    }
+
+    @Test
+    public void nearDigitBoundaryTest() {
+        //test fractions just either side of 7/16 and one well inside a digit
+        assertEquals(true, PiGenerator.nearDigitBoundary(7 / 16.0 - 1e-12, 1000000L));
+        assertEquals(true, PiGenerator.nearDigitBoundary(7 / 16.0 + 1e-12, 1000000L));
+        assertEquals(false, PiGenerator.nearDigitBoundary(7.5 / 16.0, 1000000L));
+        //test that the margin grows with the position
+        assertEquals(false, PiGenerator.nearDigitBoundary(7 / 16.0 + 1e-12, 10L));
+        //test that guarded digits agree with the double-double ones
+        int[] block = PiGenerator.computePiHexBlock(10000L, 64);
+        for (int i = 0; i < block.length; i++) {
+            assertEquals(block[i], PiGenerator.piDigit(10000L + i));
+        }
+    }
 }
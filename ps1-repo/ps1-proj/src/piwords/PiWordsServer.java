@@ -0,0 +1,288 @@
+package piwords;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PiWordsServer answers questions about where words occur in pi, translated
+ * with each of several alphabets, over a line-based protocol on a local
+ * socket. The digits, translations and suffix arrays are built once when
+ * the server starts, so each query is a few binary searches.
+ * 
+ * Each request is one line, and each answer is one line:
+ * 
+ *   first ALPHABET WORD+   lowest index of each word, or -1, in order
+ *   count ALPHABET WORD+   number of occurrences of each word, in order
+ *   all ALPHABET WORD      every index of the word, in increasing order
+ *   alphabets              the names of the alphabets
+ *   help                   a description of the requests, separated by " | "
+ *   bye                    closes the connection
+ * 
+ * Any other line is answered with a line starting with "error".
+ * 
+ * The server is thread-safe: each connection is handled by its own thread,
+ * which only shares the indexes with the others, and suffix arrays are not
+ * modified once built.
+ */
+public class PiWordsServer {
+    private static final int DEFAULT_PORT = 4444;
+    // one line, like every other answer
+    private static final String HELP_MESSAGE =
+            "first ALPHABET WORD... : lowest index of each word, or -1 | " +
+            "count ALPHABET WORD... : number of occurrences of each word | " +
+            "all ALPHABET WORD : every index of the word | " +
+            "alphabets : names of the alphabets | " +
+            "bye : disconnect\n";
+    private static final String BYE = "bye";
+
+    private final ServerSocket serverSocket;
+    // indexes of the translations of pi, by alphabet name
+    private final Map<String, SuffixArray> indexes;
+
+    /**
+     * Make a PiWordsServer that listens for connections on port of the local
+     * host.
+     * 
+     * @param port port number, requires 0 <= port <= 65535; 0 picks any
+     *             free port.
+     * @param indexes Suffix arrays of the translated digits of pi by
+     *                alphabet name. The map is copied; the arrays are shared.
+     * @throws IOException if the port cannot be listened on.
+     */
+    public PiWordsServer(int port, Map<String, SuffixArray> indexes) throws IOException {
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.indexes = new LinkedHashMap<String, SuffixArray>(indexes);
+    }
+
+    /**
+     * @return the port the server listens on.
+     */
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Run the server, listening for client connections and handling them.
+     * Only returns by throwing an exception, e.g. after close.
+     * 
+     * @throws IOException if the main server socket is broken (IOExceptions
+     *         from individual clients do not terminate serve()).
+     */
+    public void serve() throws IOException {
+        while (true) {
+            // block until a client connects
+            final Socket socket = serverSocket.accept();
+            Thread client = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        handleConnection(socket);
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    } finally {
+                        try {
+                            socket.close();
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        }
+                    }
+                }
+            });
+            client.start();
+        }
+    }
+
+    /**
+     * Stop listening for connections, which makes serve() throw.
+     */
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    /**
+     * Handles a single connection, in a thread of its own. Answers are
+     * flushed only once no further request has already arrived, so a client
+     * that sends a batch of lines gets the answers back in one go.
+     */
+    private void handleConnection(Socket socket) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+        PrintWriter out = new PrintWriter(socket.getOutputStream(), false);
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String output = handleRequest(line);
+                if (output.equals(BYE)) {
+                    break;
+                }
+                out.print(output);
+                if (!in.ready()) {
+                    out.flush();
+                }
+            }
+        } finally {
+            out.close();
+            in.close();
+        }
+    }
+
+    /**
+     * Returns the answer to one request line, as specified above, ending in
+     * a newline, or "bye" if the connection should be closed.
+     */
+    String handleRequest(String input) {
+        String[] tokens = input.trim().split(" +");
+        String command = tokens[0];
+        if (command.equals("bye") && tokens.length == 1) {
+            return BYE;
+        } else if (command.equals("help") && tokens.length == 1) {
+            return HELP_MESSAGE;
+        } else if (command.equals("alphabets") && tokens.length == 1) {
+            return join(indexes.keySet().toArray(new String[0])) + "\n";
+        } else if (command.equals("first") || command.equals("count")
+                   || command.equals("all")) {
+            if (tokens.length < 3 || (command.equals("all") && tokens.length != 3)) {
+                return "error: wrong number of arguments for " + command + "\n";
+            }
+            SuffixArray index = indexes.get(tokens[1]);
+            if (index == null) {
+                return "error: no alphabet named " + tokens[1] + "\n";
+            }
+            if (command.equals("all")) {
+                return join(index.occurrences(tokens[2])) + "\n";
+            }
+            int[] answers = new int[tokens.length - 2];
+            for (int i = 0; i < answers.length; i++) {
+                String word = tokens[i + 2];
+                answers[i] = command.equals("first") ? index.firstOccurrence(word)
+                                                     : index.count(word);
+            }
+            return join(answers) + "\n";
+        }
+        return "error: unknown request, type 'help' for help\n";
+    }
+
+    private static String join(int[] values) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            sb.append((i > 0) ? " " : "").append(values[i]);
+        }
+        return sb.toString();
+    }
+
+    private static String join(String[] values) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            sb.append((i > 0) ? " " : "").append(values[i]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Start a PiWordsServer on the local host.
+     * 
+     * Usage: PiWordsServer [PORT [PRECISION]]
+     * 
+     * PORT defaults to 4444 and PRECISION, the number of hex digits of pi
+     * to translate, to Main.PI_PRECISION. The server offers the alphabets
+     * "basic", Main.BASIC_ALPHABET over base 26, and "frequency", the
+     * alphabet generated from Main.FREQ_FILE over base 100, the same
+     * translations as Main. Suffix arrays are saved next to Main.FREQ_FILE
+     * and reused by later runs with the same precision and alphabets.
+     */
+    public static void main(String[] args) {
+        int port = DEFAULT_PORT;
+        int precision = Main.PI_PRECISION;
+        try {
+            if (args.length > 2) {
+                throw new IllegalArgumentException();
+            }
+            if (args.length >= 1) {
+                port = Integer.parseInt(args[0]);
+            }
+            if (args.length == 2) {
+                precision = Integer.parseInt(args[1]);
+            }
+            if (port < 0 || port > 65535 || precision < 0) {
+                throw new IllegalArgumentException();
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("usage: PiWordsServer [PORT [PRECISION]]");
+            return;
+        }
+        try {
+            PiWordsServer server = new PiWordsServer(port, loadIndexes(precision));
+            System.out.println("Listening on port " + server.port());
+            server.serve();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Returns the suffix arrays of pi translated with the alphabets of Main,
+     * read from their files if those were built with the same precision and
+     * alphabets, otherwise built and saved.
+     */
+    private static Map<String, SuffixArray> loadIndexes(int precision) throws IOException {
+        File basicFile = new File("txt_files/pi-basic.sa");
+        File frequencyFile = new File("txt_files/pi-frequency.sa");
+        List<Pair<Character, Integer>> charFreq = Main.readFreqFile(Main.FREQ_FILE);
+        char[] alphabet = AlphabetGenerator.generateFrequencyAlphabet(charFreq);
+        String basicKey = indexKey(precision, Main.BASIC_ALPHABET);
+        String frequencyKey = indexKey(precision, alphabet);
+        Map<String, SuffixArray> indexes = new LinkedHashMap<String, SuffixArray>();
+        SuffixArray basic = loadIndex(basicFile, basicKey);
+        SuffixArray frequency = loadIndex(frequencyFile, frequencyKey);
+        if (basic == null || frequency == null) {
+            PiDigitStore store = new PiDigitStore(new File(Main.PI_STORE_FILE));
+            int[] piHexDigits;
+            try {
+                piHexDigits = PiGenerator.computePiInHex(precision,
+                        Runtime.getRuntime().availableProcessors(), store);
+            } finally {
+                store.close();
+            }
+            if (basic == null) {
+                basic = new SuffixArray(DigitsToStringConverter.convertDigitsToString(
+                        BaseTranslator.convertBase(piHexDigits, 16, 26, precision),
+                        26, Main.BASIC_ALPHABET));
+                basic.save(basicFile, basicKey);
+            }
+            if (frequency == null) {
+                frequency = new SuffixArray(DigitsToStringConverter.convertDigitsToString(
+                        BaseTranslator.convertBase(piHexDigits, 16, alphabet.length, precision),
+                        alphabet.length, alphabet));
+                frequency.save(frequencyFile, frequencyKey);
+            }
+        }
+        indexes.put("basic", basic);
+        indexes.put("frequency", frequency);
+        return indexes;
+    }
+
+    /**
+     * Returns a description of the translation of precision digits of pi
+     * with alphabet, which is saved with its index so that a change to
+     * either is noticed.
+     */
+    private static String indexKey(int precision, char[] alphabet) {
+        return precision + " " + new String(alphabet);
+    }
+
+    /**
+     * Returns the suffix array saved in file with key, or null if there is
+     * no such file or it was saved with another key.
+     */
+    private static SuffixArray loadIndex(File file, String key) throws IOException {
+        return file.exists() ? SuffixArray.load(file, key) : null;
+    }
+}
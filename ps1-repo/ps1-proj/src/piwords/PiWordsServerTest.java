@@ -0,0 +1,88 @@
+package piwords;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class PiWordsServerTest {
+    /**
+     * Starts a server on a free port with the given texts indexed by name.
+     */
+    private static PiWordsServer startServer(String[] names, String[] texts) throws IOException {
+        Map<String, SuffixArray> indexes = new HashMap<String, SuffixArray>();
+        for (int i = 0; i < names.length; i++) {
+            indexes.put(names[i], new SuffixArray(texts[i]));
+        }
+        final PiWordsServer server = new PiWordsServer(0, indexes);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    server.serve();
+                } catch (IOException e) {
+                    //the server was closed
+                }
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return server;
+    }
+
+    @Test
+    public void handleRequestTest() throws IOException {
+        PiWordsServer server = startServer(new String[]{"basic"},
+                                           new String[]{"abaaaaba"});
+        try {
+            assertEquals("0 2 -1\n", server.handleRequest("first basic ab aaaa bb"));
+            assertEquals("2 1 0\n", server.handleRequest("count basic ab aaaa bb"));
+            assertEquals("0 2 3 4 5 7\n", server.handleRequest("all basic a"));
+            assertEquals("basic\n", server.handleRequest("alphabets"));
+            assertEquals("bye", server.handleRequest("bye"));
+            //test that help is one line, like every other answer
+            String help = server.handleRequest("help");
+            assertEquals(help.length() - 1, help.indexOf('\n'));
+            //test malformed requests
+            assertEquals(true, server.handleRequest("first basic").startsWith("error"));
+            assertEquals(true, server.handleRequest("first other ab").startsWith("error"));
+            assertEquals(true, server.handleRequest("all basic a b").startsWith("error"));
+            assertEquals(true, server.handleRequest("dig 1 2").startsWith("error"));
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    public void batchedConnectionTest() throws IOException {
+        PiWordsServer server = startServer(new String[]{"basic", "frequency"},
+                                           new String[]{"javaisfun", "funisjava"});
+        try {
+            Socket socket = new Socket("localhost", server.port());
+            try {
+                PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+                BufferedReader in = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream()));
+                //test that a batch of requests sent at once is answered in order
+                out.print("first basic java fun\nfirst frequency java fun\ncount basic a\n");
+                out.flush();
+                assertEquals("0 6", in.readLine());
+                assertEquals("5 0", in.readLine());
+                assertEquals("2", in.readLine());
+                out.println("bye");
+                assertEquals(null, in.readLine());
+            } finally {
+                socket.close();
+            }
+        } finally {
+            server.close();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package piwords;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+
+/**
+ * PiWorker computes ranges of hexadecimal digits of pi for a PiCoordinator,
+ * using the protocol described there.
+ */
+public class PiWorker {
+    private final String host;
+    private final int port;
+    private final int parallelism;
+
+    /**
+     * Make a worker for the coordinator at host and port.
+     * 
+     * @param host The host the coordinator runs on.
+     * @param port The port the coordinator listens on.
+     * @param parallelism The number of threads to compute each range on.
+     *                    Requires parallelism >= 1.
+     */
+    public PiWorker(String host, int port, int parallelism) {
+        this.host = host;
+        this.port = port;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Connect to the coordinator and compute the ranges it hands out until
+     * it says every digit is done.
+     * 
+     * @return the number of ranges computed.
+     * @throws IOException if the connection fails or the coordinator sends
+     *         something that isn't part of the protocol.
+     */
+    public int run() throws IOException {
+        Socket socket = new Socket(host, port);
+        int ranges = 0;
+        try {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+            String line;
+            while ((line = in.readLine()) != null && !line.equals("done")) {
+                String[] tokens = line.split(" ");
+                if (tokens.length != 3 || !tokens[0].equals("range")) {
+                    throw new IOException("Unexpected request from coordinator: " + line);
+                }
+                long first;
+                int count;
+                try {
+                    first = Long.parseLong(tokens[1]);
+                    count = Integer.parseInt(tokens[2]);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Unexpected request from coordinator: " + line, e);
+                }
+                int[] digits = PiGenerator.computePiHexRange(first, count, parallelism);
+                StringBuilder sb = new StringBuilder(count);
+                for (int digit : digits) {
+                    sb.append(Character.forDigit(digit, 16));
+                }
+                out.println("digits " + first + " " + sb);
+                ranges++;
+            }
+        } finally {
+            socket.close();
+        }
+        return ranges;
+    }
+
+    /**
+     * Run a worker.
+     * 
+     * Usage: PiWorker HOST PORT [PARALLELISM]
+     * 
+     * PARALLELISM defaults to the number of available processors.
+     */
+    public static void main(String[] args) {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        int port;
+        try {
+            if (args.length != 2 && args.length != 3) {
+                throw new IllegalArgumentException();
+            }
+            port = Integer.parseInt(args[1]);
+            if (args.length == 3) {
+                parallelism = Integer.parseInt(args[2]);
+            }
+            if (port < 0 || port > 65535 || parallelism < 1) {
+                throw new IllegalArgumentException();
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("usage: PiWorker HOST PORT [PARALLELISM]");
+            return;
+        }
+        try {
+            int ranges = new PiWorker(args[0], port, parallelism).run();
+            System.out.println("Computed " + ranges + " ranges");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package piwords;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * PipelineBenchmark measures each stage of the piwords pipeline: throughput
+ * in operations per second and heap allocated per operation.
+ * 
+ * Every benchmark is run once per precision, and the word search once per
+ * precision and dictionary size. Each run warms up for WARMUP_MILLIS, then
+ * is timed for MEASURE_MILLIS, always completing at least one operation.
+ * Results of every operation are folded into a checksum that is printed at
+ * the end, so that the JIT can't discard the work.
+ * 
+ * Usage, from the project directory:
+ * 
+ *   java piwords.PipelineBenchmark [--precisions=1000,10000,...]
+ *                                  [--dict-sizes=1000,10000,...]
+ *                                  [--bench=piHex,powerMod,...]
+ * 
+ * Benchmark names are piHex, powerMod, convertBase, digitsToString,
+ * frequencyAlphabet, findWords, buildMatcher and fusedPipeline. By default
+ * all of them run at precisions 10^3 to 10^6 and dictionary sizes 10^3 to
+ * 10^5 plus the whole of Main.WORD_FILE, except that fusedPipeline, whose
+ * base conversion is quadratic, skips precisions above
+ * MAX_FUSED_PRECISION.
+ * 
+ * Allocation is measured on the benchmark thread only, so every stage runs
+ * with parallelism 1, which the stages compute on the calling thread.
+ */
+public class PipelineBenchmark {
+    private static final long WARMUP_MILLIS = 2000;
+    private static final long MEASURE_MILLIS = 5000;
+
+    private static final int[] DEFAULT_PRECISIONS = {1000, 10000, 100000, 1000000};
+    private static final int MAX_FUSED_PRECISION = 100000;
+    // 0 stands for the whole dictionary
+    private static final int[] DEFAULT_DICT_SIZES = {1000, 10000, 100000, 0};
+    private static final String[] ALL_BENCHMARKS = {"piHex", "powerMod",
+            "convertBase", "digitsToString", "frequencyAlphabet", "findWords",
+            "buildMatcher", "fusedPipeline"};
+
+    /**
+     * One operation of a benchmark. Returns a value depending on the work
+     * done, to be folded into the checksum.
+     */
+    private interface Operation {
+        long run();
+    }
+
+    private static long checksum = 0;
+
+    public static void main(String[] args) throws IOException {
+        int[] precisions = DEFAULT_PRECISIONS;
+        int[] dictSizes = DEFAULT_DICT_SIZES;
+        List<String> benchmarks = Arrays.asList(ALL_BENCHMARKS);
+        for (String arg : args) {
+            if (arg.startsWith("--precisions=")) {
+                precisions = parseInts(arg.substring("--precisions=".length()));
+            } else if (arg.startsWith("--dict-sizes=")) {
+                dictSizes = parseInts(arg.substring("--dict-sizes=".length()));
+            } else if (arg.startsWith("--bench=")) {
+                benchmarks = Arrays.asList(arg.substring("--bench=".length()).split(","));
+            } else {
+                System.err.println("Unknown argument: " + arg);
+                return;
+            }
+        }
+
+        String[] words = Main.readWordFile(Main.WORD_FILE);
+        List<Pair<Character, Integer>> charFreq = Main.readFreqFile(Main.FREQ_FILE);
+        System.out.println("bytes/op: benchmark thread only, all stages at parallelism 1");
+        System.out.printf("%-18s %-26s %14s %16s%n", "benchmark", "params",
+                          "ops/s", "bytes/op");
+
+        for (final int precision : precisions) {
+            final int[] piHex = PiGenerator.computePiInHex(precision);
+            final int[] base26 = BaseTranslator.convertBase(piHex, 16, 26, precision);
+            final String haystack = DigitsToStringConverter.convertDigitsToString(
+                    base26, 26, Main.BASIC_ALPHABET);
+            String params = "precision=" + precision;
+
+            if (benchmarks.contains("piHex")) {
+                measure("piHex", params, new Operation() {
+                    public long run() {
+                        return PiGenerator.computePiInHex(precision)[precision - 1];
+                    }
+                });
+            }
+            if (benchmarks.contains("powerMod")) {
+                // the powerMod calls of one BBP left sum, 8k+1 moduli
+                measure("powerMod", params, new Operation() {
+                    public long run() {
+                        long sum = 0;
+                        for (int k = 0; k < precision; k++) {
+                            sum += PiGenerator.powerMod(16L, (long) precision - k, 8L * k + 1);
+                        }
+                        return sum;
+                    }
+                });
+            }
+            if (benchmarks.contains("convertBase")) {
+                measure("convertBase", params, new Operation() {
+                    public long run() {
+                        return BaseTranslator.convertBase(piHex, 16, 26, precision)[precision - 1];
+                    }
+                });
+            }
+            if (benchmarks.contains("digitsToString")) {
+                measure("digitsToString", params, new Operation() {
+                    public long run() {
+                        return DigitsToStringConverter.convertDigitsToString(
+                                base26, 26, Main.BASIC_ALPHABET).hashCode();
+                    }
+                });
+            }
+            if (benchmarks.contains("frequencyAlphabet")) {
+                // scale the frequencies so the alphabet has about precision chars
+                final List<Pair<Character, Integer>> scaled = scaleFrequencies(charFreq, precision);
+                measure("frequencyAlphabet", params, new Operation() {
+                    public long run() {
+                        return AlphabetGenerator.generateFrequencyAlphabet(scaled).length;
+                    }
+                });
+            }
+            for (int dictSize : dictSizes) {
+                final String[] needles = (dictSize <= 0 || dictSize >= words.length)
+                        ? words : sample(words, dictSize);
+                String dictParams = params + " dict=" + needles.length;
+                if (benchmarks.contains("findWords")) {
+                    measure("findWords", dictParams, new Operation() {
+                        public long run() {
+                            return WordFinder.findWords(haystack, needles).size();
+                        }
+                    });
+                }
+                if (benchmarks.contains("fusedPipeline") && precision <= MAX_FUSED_PRECISION) {
+                    // base-26 conversion, mapping and search in one pass
+                    final AhoCorasick matcher = new AhoCorasick(needles);
+                    measure("fusedPipeline", dictParams, new Operation() {
+                        public long run() {
+                            return FusedPipeline.findWords(piHex, 16, 26, precision,
+                                    Main.BASIC_ALPHABET, matcher).size();
+                        }
+                    });
+                }
+                if (benchmarks.contains("buildMatcher") && precision == precisions[0]) {
+                    // building the automaton doesn't depend on the precision
+                    measure("buildMatcher", "dict=" + needles.length, new Operation() {
+                        public long run() {
+                            return new AhoCorasick(needles).size();
+                        }
+                    });
+                }
+            }
+        }
+        System.out.println("checksum " + checksum);
+    }
+
+    /**
+     * Warm up and then time op, printing its throughput and allocation rate.
+     */
+    private static void measure(String name, String params, Operation op) {
+        runFor(op, WARMUP_MILLIS);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long allocatedBefore = allocatedBytes(threads);
+        long start = System.nanoTime();
+        long ops = runFor(op, MEASURE_MILLIS);
+        long elapsed = System.nanoTime() - start;
+        long allocatedAfter = allocatedBytes(threads);
+
+        String bytesPerOp = (allocatedBefore < 0) ? "n/a"
+                : String.valueOf((allocatedAfter - allocatedBefore) / ops);
+        System.out.printf("%-18s %-26s %14.3f %16s%n", name, params,
+                          ops * 1e9 / elapsed, bytesPerOp);
+    }
+
+    /**
+     * Run op repeatedly for at least millis milliseconds and at least once.
+     * Returns the number of times it ran.
+     */
+    private static long runFor(Operation op, long millis) {
+        long deadline = System.nanoTime() + millis * 1000000;
+        long ops = 0;
+        do {
+            checksum += op.run();
+            ops++;
+        } while (System.nanoTime() < deadline);
+        return ops;
+    }
+
+    /**
+     * Returns the bytes allocated so far by this thread, or -1 if the JVM
+     * can't tell.
+     */
+    private static long allocatedBytes(ThreadMXBean threads) {
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /**
+     * Returns size words spread evenly through words.
+     */
+    private static String[] sample(String[] words, int size) {
+        String[] sample = new String[size];
+        for (int i = 0; i < size; i++) {
+            sample[i] = words[(int) ((long) i * words.length / size)];
+        }
+        return sample;
+    }
+
+    private static List<Pair<Character, Integer>> scaleFrequencies(
+            List<Pair<Character, Integer>> frequencies, int total) {
+        long sum = 0;
+        for (Pair<Character, Integer> pair : frequencies) {
+            sum += pair.second;
+        }
+        List<Pair<Character, Integer>> scaled = new ArrayList<Pair<Character, Integer>>();
+        for (Pair<Character, Integer> pair : frequencies) {
+            scaled.add(new Pair<Character, Integer>(pair.first,
+                    (int) ((long) pair.second * total / sum)));
+        }
+        return scaled;
+    }
+
+    private static int[] parseInts(String list) {
+        String[] parts = list.split(",");
+        int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Integer.parseInt(parts[i].trim());
+        }
+        return values;
+    }
+}
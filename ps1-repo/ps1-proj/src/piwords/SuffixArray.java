@@ -0,0 +1,471 @@
+package piwords;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * SuffixArray is an immutable index over a fixed text, such as pi translated
+ * by DigitsToStringConverter, that answers substring queries without
+ * scanning the text. Finding a word of length m takes O(m log n) time.
+ * 
+ * The suffix array is built in linear time by induced sorting (SA-IS), and
+ * the LCP array from it in linear time by Kasai's algorithm. Earliest
+ * occurrences are answered with a range-minimum structure over the suffix
+ * array: minimums of blocks of BLOCK_SIZE suffixes, and a sparse table over
+ * those.
+ * 
+ * A SuffixArray is Serializable, and save and load store it in a file so
+ * that it only has to be built once for a given text. The file also holds a
+ * key naming the text, and load can reject an index saved with another key.
+ */
+public class SuffixArray implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final int BLOCK_SIZE = 32;
+
+    private final String text;
+    // suffixArray[r] is the start of the suffix of rank r
+    private final int[] suffixArray;
+    // lcp[r] is the length of the longest common prefix of the suffixes of
+    // rank r-1 and r; lcp[0] is 0
+    private final int[] lcp;
+    // blockMin[k][b] is the minimum of suffixArray over the 2^k blocks
+    // starting with block b
+    private final int[][] blockMin;
+
+    // rep invariant: suffixArray is a permutation of 0..text.length()-1 that
+    //   orders the suffixes of text; lcp and blockMin agree with it
+
+    /**
+     * Build the index for text.
+     * 
+     * @param text The text to index.
+     */
+    public SuffixArray(String text) {
+        this.text = text;
+        int n = text.length();
+
+        // rename the chars to 0..upper, keeping their order
+        char[] chars = text.toCharArray();
+        char[] distinct = chars.clone();
+        Arrays.sort(distinct);
+        int numDistinct = 0;
+        for (int i = 0; i < n; i++) {
+            if (i == 0 || distinct[i] != distinct[i - 1]) {
+                distinct[numDistinct++] = distinct[i];
+            }
+        }
+        int[] s = new int[n];
+        for (int i = 0; i < n; i++) {
+            s[i] = Arrays.binarySearch(distinct, 0, numDistinct, chars[i]);
+        }
+
+        suffixArray = inducedSort(s, Math.max(0, numDistinct - 1));
+        lcp = kasai(s, suffixArray);
+        blockMin = buildBlockMin(suffixArray);
+    }
+
+    /**
+     * @return the indexed text.
+     */
+    public String text() {
+        return text;
+    }
+
+    /**
+     * @param rank Requires 0 <= rank < text().length().
+     * @return the index in text() of the suffix with the given rank in
+     *         lexicographic order.
+     */
+    public int suffix(int rank) {
+        return suffixArray[rank];
+    }
+
+    /**
+     * @param rank Requires 0 < rank < text().length().
+     * @return the length of the longest common prefix of the suffixes with
+     *         ranks rank-1 and rank.
+     */
+    public int lcp(int rank) {
+        return lcp[rank];
+    }
+
+    /**
+     * @param word The string to search for.
+     * @return the number of (possibly overlapping) occurrences of word in
+     *         text(); text().length() + 1 for the empty word.
+     */
+    public int count(String word) {
+        if (word.isEmpty()) {
+            return text.length() + 1;
+        }
+        return upperBound(word) - lowerBound(word);
+    }
+
+    /**
+     * @param word The string to search for.
+     * @return the lowest index of text() at which word occurs, or -1 if it
+     *         doesn't occur; the same as text().indexOf(word).
+     */
+    public int firstOccurrence(String word) {
+        if (word.isEmpty()) {
+            return 0;
+        }
+        int lo = lowerBound(word);
+        int hi = upperBound(word);
+        return (lo < hi) ? rangeMin(lo, hi) : -1;
+    }
+
+    /**
+     * @param word The string to search for. Requires word not to be empty.
+     * @return every index of text() at which word occurs, in increasing
+     *         order.
+     */
+    public int[] occurrences(String word) {
+        int[] positions = Arrays.copyOfRange(suffixArray, lowerBound(word),
+                                             upperBound(word));
+        Arrays.sort(positions);
+        return positions;
+    }
+
+    /**
+     * Write this index to file, replacing its contents.
+     * 
+     * @param file The file to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public void save(File file) throws IOException {
+        save(file, "");
+    }
+
+    /**
+     * Write this index to file with key, replacing its contents. The key
+     * describes what the text was built from, so that load can tell an index
+     * of a stale text from a current one.
+     * 
+     * @param file The file to write.
+     * @param key A description of the indexed text.
+     * @throws IOException if the file cannot be written.
+     */
+    public void save(File file, String key) throws IOException {
+        ObjectOutputStream out = new ObjectOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            out.writeUTF(key);
+            out.writeObject(this);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Read an index written by save, whatever its key.
+     * 
+     * @param file The file to read.
+     * @return the index stored in file.
+     * @throws IOException if the file cannot be read or doesn't hold an index.
+     */
+    public static SuffixArray load(File file) throws IOException {
+        return load(file, null);
+    }
+
+    /**
+     * Read an index written by save with key.
+     * 
+     * @param file The file to read.
+     * @param key The key the index must have been saved with, or null for
+     *            any key.
+     * @return the index stored in file, or null if it was saved with a
+     *         different key.
+     * @throws IOException if the file cannot be read or doesn't hold an index.
+     */
+    public static SuffixArray load(File file, String key) throws IOException {
+        ObjectInputStream in = new ObjectInputStream(
+                new BufferedInputStream(new FileInputStream(file)));
+        try {
+            String savedKey = in.readUTF();
+            if (key != null && !savedKey.equals(key)) {
+                return null;
+            }
+            return (SuffixArray) in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Not a suffix array: " + file, e);
+        } catch (ClassCastException e) {
+            throw new IOException("Not a suffix array: " + file, e);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Returns the first rank whose suffix is not less than word.
+     */
+    private int lowerBound(String word) {
+        int lo = 0;
+        int hi = suffixArray.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(suffixArray[mid], word) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Returns the first rank whose suffix is greater than word and doesn't
+     * start with it.
+     */
+    private int upperBound(String word) {
+        int lo = 0;
+        int hi = suffixArray.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(suffixArray[mid], word) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Compares the suffix starting at start with word, treating a suffix
+     * that starts with word as equal to it.
+     */
+    private int compare(int start, String word) {
+        int n = Math.min(text.length() - start, word.length());
+        for (int i = 0; i < n; i++) {
+            int c = text.charAt(start + i) - word.charAt(i);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return (n == word.length()) ? 0 : -1;
+    }
+
+    /**
+     * Returns the minimum of suffixArray[lo..hi), for lo < hi.
+     */
+    private int rangeMin(int lo, int hi) {
+        int firstBlock = (lo + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int lastBlock = hi / BLOCK_SIZE;
+        int min = Integer.MAX_VALUE;
+        if (firstBlock >= lastBlock) {
+            for (int i = lo; i < hi; i++) {
+                min = Math.min(min, suffixArray[i]);
+            }
+            return min;
+        }
+        for (int i = lo; i < firstBlock * BLOCK_SIZE; i++) {
+            min = Math.min(min, suffixArray[i]);
+        }
+        for (int i = lastBlock * BLOCK_SIZE; i < hi; i++) {
+            min = Math.min(min, suffixArray[i]);
+        }
+        int k = 31 - Integer.numberOfLeadingZeros(lastBlock - firstBlock);
+        min = Math.min(min, blockMin[k][firstBlock]);
+        return Math.min(min, blockMin[k][lastBlock - (1 << k)]);
+    }
+
+    private static int[][] buildBlockMin(int[] sa) {
+        int numBlocks = sa.length / BLOCK_SIZE;
+        int levels = (numBlocks == 0) ? 0 : 32 - Integer.numberOfLeadingZeros(numBlocks);
+        int[][] table = new int[levels][];
+        if (levels == 0) {
+            return table;
+        }
+        table[0] = new int[numBlocks];
+        for (int b = 0; b < numBlocks; b++) {
+            int min = Integer.MAX_VALUE;
+            for (int i = b * BLOCK_SIZE; i < (b + 1) * BLOCK_SIZE; i++) {
+                min = Math.min(min, sa[i]);
+            }
+            table[0][b] = min;
+        }
+        for (int k = 1; k < levels; k++) {
+            int half = 1 << (k - 1);
+            table[k] = new int[numBlocks - (1 << k) + 1];
+            for (int b = 0; b < table[k].length; b++) {
+                table[k][b] = Math.min(table[k - 1][b], table[k - 1][b + half]);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Kasai's algorithm: the LCP of each suffix with the one ranked before
+     * it is at least one less than that of the suffix starting one earlier.
+     */
+    private static int[] kasai(int[] s, int[] sa) {
+        int n = s.length;
+        int[] rank = new int[n];
+        for (int r = 0; r < n; r++) {
+            rank[sa[r]] = r;
+        }
+        int[] lcp = new int[n];
+        int h = 0;
+        for (int i = 0; i < n; i++) {
+            if (h > 0) {
+                h--;
+            }
+            if (rank[i] == 0) {
+                h = 0;
+                continue;
+            }
+            int j = sa[rank[i] - 1];
+            while (i + h < n && j + h < n && s[i + h] == s[j + h]) {
+                h++;
+            }
+            lcp[rank[i]] = h;
+        }
+        return lcp;
+    }
+
+    /**
+     * Returns the suffix array of s, whose values are in [0, upper], by
+     * induced sorting (SA-IS).
+     * 
+     * Each position is S-type if its suffix is smaller than the next one and
+     * L-type otherwise; an LMS position is an S-type one after an L-type
+     * one. Once the LMS suffixes are in order, one left-to-right pass
+     * places every L-type suffix and one right-to-left pass places every
+     * S-type suffix. The LMS suffixes are themselves put in order by naming
+     * the LMS substrings and sorting the resulting shorter string
+     * recursively.
+     */
+    static int[] inducedSort(int[] s, int upper) {
+        int n = s.length;
+        if (n == 0) {
+            return new int[0];
+        }
+        if (n == 1) {
+            return new int[]{0};
+        }
+        if (n == 2) {
+            return (s[0] < s[1]) ? new int[]{0, 1} : new int[]{1, 0};
+        }
+
+        boolean[] isS = new boolean[n];
+        for (int i = n - 2; i >= 0; i--) {
+            isS[i] = (s[i] == s[i + 1]) ? isS[i + 1] : (s[i] < s[i + 1]);
+        }
+
+        // bucket boundaries: for each char c, L-type suffixes starting with
+        // c go from startL[c], S-type ones from startS[c]
+        int[] startL = new int[upper + 2];
+        int[] startS = new int[upper + 2];
+        for (int i = 0; i < n; i++) {
+            if (!isS[i]) {
+                startS[s[i]]++;
+            } else {
+                startL[s[i] + 1]++;
+            }
+        }
+        for (int c = 0; c <= upper; c++) {
+            startS[c] += startL[c];
+            startL[c + 1] += startS[c];
+        }
+
+        int[] lmsIndex = new int[n];
+        Arrays.fill(lmsIndex, -1);
+        int m = 0;
+        for (int i = 1; i < n; i++) {
+            if (!isS[i - 1] && isS[i]) {
+                lmsIndex[i] = m++;
+            }
+        }
+        int[] lms = new int[m];
+        for (int i = 1; i < n; i++) {
+            if (!isS[i - 1] && isS[i]) {
+                lms[lmsIndex[i]] = i;
+            }
+        }
+
+        int[] sa = new int[n];
+        induce(s, upper, isS, startL, startS, lms, sa);
+
+        if (m > 0) {
+            // name each LMS substring by its rank among the distinct ones
+            int[] sortedLms = new int[m];
+            int k = 0;
+            for (int v : sa) {
+                if (lmsIndex[v] != -1) {
+                    sortedLms[k++] = v;
+                }
+            }
+            int[] reduced = new int[m];
+            int name = 0;
+            reduced[lmsIndex[sortedLms[0]]] = 0;
+            for (int i = 1; i < m; i++) {
+                int l = sortedLms[i - 1];
+                int r = sortedLms[i];
+                int endL = (lmsIndex[l] + 1 < m) ? lms[lmsIndex[l] + 1] : n;
+                int endR = (lmsIndex[r] + 1 < m) ? lms[lmsIndex[r] + 1] : n;
+                boolean same = true;
+                if (endL - l != endR - r) {
+                    same = false;
+                } else {
+                    while (l < endL && s[l] == s[r]) {
+                        l++;
+                        r++;
+                    }
+                    if (l == n || s[l] != s[r]) {
+                        same = false;
+                    }
+                }
+                if (!same) {
+                    name++;
+                }
+                reduced[lmsIndex[sortedLms[i]]] = name;
+            }
+
+            int[] reducedSa = inducedSort(reduced, name);
+            for (int i = 0; i < m; i++) {
+                sortedLms[i] = lms[reducedSa[i]];
+            }
+            induce(s, upper, isS, startL, startS, sortedLms, sa);
+        }
+        return sa;
+    }
+
+    /**
+     * Fills sa by placing the LMS suffixes in the given order at the ends
+     * of their buckets, then inducing the L-type and S-type suffixes.
+     */
+    private static void induce(int[] s, int upper, boolean[] isS, int[] startL,
+                               int[] startS, int[] lms, int[] sa) {
+        int n = s.length;
+        Arrays.fill(sa, -1);
+        int[] next = new int[upper + 2];
+        System.arraycopy(startS, 0, next, 0, upper + 2);
+        for (int d : lms) {
+            sa[next[s[d]]++] = d;
+        }
+        System.arraycopy(startL, 0, next, 0, upper + 2);
+        sa[next[s[n - 1]]++] = n - 1;
+        for (int i = 0; i < n; i++) {
+            int v = sa[i];
+            if (v >= 1 && !isS[v - 1]) {
+                sa[next[s[v - 1]]++] = v - 1;
+            }
+        }
+        System.arraycopy(startL, 0, next, 0, upper + 2);
+        for (int i = n - 1; i >= 0; i--) {
+            int v = sa[i];
+            if (v >= 1 && isS[v - 1]) {
+                sa[--next[s[v - 1] + 1]] = v - 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package piwords;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SuffixArrayTest {
+    @Test
+    public void basicSuffixArrayTest() {
+        SuffixArray index = new SuffixArray("banana");
+        //suffixes in order: a, ana, anana, banana, na, nana
+        int[] expected = {5, 3, 1, 0, 4, 2};
+        for (int r = 0; r < expected.length; r++) {
+            assertEquals(expected[r], index.suffix(r));
+        }
+        assertEquals(3, index.lcp(2)); //ana and anana
+        assertEquals(0, index.lcp(3)); //anana and banana
+        assertEquals(2, index.count("ana"));
+        assertEquals(1, index.firstOccurrence("ana"));
+        assertArrayEquals(new int[]{1, 3}, index.occurrences("ana"));
+        assertEquals(0, index.count("nab"));
+        assertEquals(-1, index.firstOccurrence("nab"));
+        assertEquals(0, index.occurrences("bananas").length);
+        assertEquals(0, index.firstOccurrence(""));
+    }
+
+    @Test
+    public void randomSuffixArrayTest() {
+        //test against sorting the suffixes directly and against indexOf
+        Random random = new Random(6005);
+        for (int trial = 0; trial < 40; trial++) {
+            int alphabetSize = 1 + random.nextInt(4);
+            final String text = randomString(random, random.nextInt(trial < 30 ? 60 : 3000),
+                                             alphabetSize);
+            SuffixArray index = new SuffixArray(text);
+            Integer[] naive = new Integer[text.length()];
+            for (int i = 0; i < naive.length; i++) {
+                naive[i] = i;
+            }
+            Arrays.sort(naive, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    return text.substring(a).compareTo(text.substring(b));
+                }
+            });
+            for (int r = 0; r < naive.length; r++) {
+                assertEquals(naive[r].intValue(), index.suffix(r));
+                if (r > 0) {
+                    int lcp = 0;
+                    while (naive[r - 1] + lcp < text.length() && naive[r] + lcp < text.length()
+                           && text.charAt(naive[r - 1] + lcp) == text.charAt(naive[r] + lcp)) {
+                        lcp++;
+                    }
+                    assertEquals(lcp, index.lcp(r));
+                }
+            }
+            for (int query = 0; query < 20; query++) {
+                String word = randomString(random, 1 + random.nextInt(5), alphabetSize);
+                assertEquals(text.indexOf(word), index.firstOccurrence(word));
+                int count = 0;
+                for (int i = text.indexOf(word); i >= 0; i = text.indexOf(word, i + 1)) {
+                    assertEquals(i, index.occurrences(word)[count]);
+                    count++;
+                }
+                assertEquals(count, index.count(word));
+            }
+        }
+    }
+
+    @Test
+    public void saveAndLoadTest() throws IOException {
+        File file = File.createTempFile("suffix-array", ".ser");
+        try {
+            SuffixArray index = new SuffixArray("mississippi");
+            index.save(file);
+            SuffixArray loaded = SuffixArray.load(file);
+            assertEquals("mississippi", loaded.text());
+            assertEquals(2, loaded.count("issi"));
+            assertEquals(2, loaded.firstOccurrence("ssi"));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void saveAndLoadKeyTest() throws IOException {
+        File file = File.createTempFile("suffix-array", ".ser");
+        try {
+            new SuffixArray("mississippi").save(file, "10 abc");
+            //test that only the key the index was saved with loads it
+            assertEquals("mississippi", SuffixArray.load(file, "10 abc").text());
+            assertNull(SuffixArray.load(file, "10 abd"));
+            assertEquals("mississippi", SuffixArray.load(file).text());
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static String randomString(Random random, int length, int alphabetSize) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + random.nextInt(alphabetSize)));
+        }
+        return sb.toString();
+    }
+}
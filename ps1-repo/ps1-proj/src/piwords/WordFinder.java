@@ -1,9 +1,30 @@
 package piwords;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 public class WordFinder {
+    // Files are mapped this many bytes at a time by the out-of-core findWords.
+    static final long SEGMENT_SIZE = 1L << 30;
+
+    // automaton for the needles of the most recent findWords call, kept so
+    // that searching for the same needles again doesn't rebuild it
+    private static String[] cachedNeedles;
+    private static AhoCorasick cachedMatcher;
+    // likewise for findWordsApproximate
+    private static String[] cachedApproximateNeedles;
+    private static ApproximateMatcher cachedApproximateMatcher;
+
     /**
      * Given a String (the haystack) and an array of Strings (the needles),
      * return a Map<String, Integer>, where keys in the map correspond to
@@ -23,13 +44,230 @@ public class WordFinder {
      */
     public static Map<String, Integer> findWords(String haystack,
                                                      String[] needles) { 
-    	Map<String, Integer> result = new HashMap<String, Integer>();
-        for (String needle : needles) {
-        	int x = haystack.indexOf(needle);
-        	if (x != -1) {
-        		result.put(needle, x);
-        	}
+        return findWords(haystack, matcherFor(needles));
+    }
+
+    /**
+     * Like findWords(String, String[]), but searches for the needles of an
+     * automaton that has already been built, so that it can be shared by any
+     * number of calls.
+     *
+     * @param haystack The string to search into.
+     * @param matcher An automaton built from the needles to search for.
+     * @return A map of needles that were found in the haystack mapped to the
+     *	       lowest index of the haystack at which the needle was found.
+     */
+    public static Map<String, Integer> findWords(String haystack,
+                                                 AhoCorasick matcher) {
+        return matcher.findWords(haystack);
+    }
+
+    /**
+     * Like findWords(String, String[]), but also finds needles that only
+     * occur with up to maxErrors inserted, deleted or substituted chars.
+     * Because such an occurrence has no single start, the value for each
+     * needle is the lowest index of haystack at which an occurrence ends
+     * (exclusive), as specified by ApproximateMatcher.firstMatchEnds.
+     *
+     * @param haystack The string to search into.
+     * @param needles The array of strings to search for. This array is not
+     *                mutated. Requires every needle to be at most 64 chars.
+     * @param maxErrors The number of errors allowed. Requires maxErrors >= 0.
+     * @return A map of needles that were found in the haystack mapped to the
+     *	       lowest index of the haystack at which an occurrence ends.
+     */
+    public static Map<String, Integer> findWordsApproximate(String haystack,
+            String[] needles, int maxErrors) {
+        return findWordsApproximate(haystack, approximateMatcherFor(needles, maxErrors));
+    }
+
+    /**
+     * Like findWordsApproximate(String, String[], int), but searches with a
+     * matcher that has already been built, so that it can be shared by any
+     * number of calls.
+     *
+     * @param haystack The string to search into.
+     * @param matcher A matcher built from the needles to search for and the
+     *                number of errors allowed.
+     * @return A map of needles that were found in the haystack mapped to the
+     *	       lowest index of the haystack at which an occurrence ends.
+     */
+    public static Map<String, Integer> findWordsApproximate(String haystack,
+            ApproximateMatcher matcher) {
+        return matcher.findWords(haystack);
+    }
+
+    /**
+     * Like findWords(String, AhoCorasick), but reads the haystack from a
+     * file with one byte per char, such as one written by
+     * DigitsToStringConverter.convertDigitsToFile. The file is memory-mapped
+     * a segment at a time and scanned in place, so the haystack is never
+     * held in the heap and may be longer than a String can be.
+     *
+     * @param haystackFile The file to search into, each byte being the char
+     *                     with that value (0 to 255).
+     * @param matcher An automaton built from the needles to search for.
+     * @return A map of needles that were found in the haystack mapped to the
+     *	       lowest index of the haystack at which the needle was found.
+     * @throws IOException if the file cannot be read.
+     */
+    public static Map<String, Long> findWords(File haystackFile, AhoCorasick matcher)
+            throws IOException {
+        return findWords(haystackFile, matcher, SEGMENT_SIZE);
+    }
+
+    /**
+     * Like findWords(File, AhoCorasick), mapping segmentSize bytes at a
+     * time. Requires 1 <= segmentSize <= Integer.MAX_VALUE.
+     */
+    static Map<String, Long> findWords(File haystackFile, AhoCorasick matcher,
+                                       long segmentSize) throws IOException {
+        int[] empty = matcher.noOccurrences(0);
+        long[] first = new long[empty.length];
+        int missing = 0;
+        for (int id = 0; id < first.length; id++) {
+            first[id] = empty[id];
+            if (first[id] < 0) {
+                missing++;
+            }
+        }
+
+        RandomAccessFile file = new RandomAccessFile(haystackFile, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            long length = channel.size();
+            int state = 0;
+            // the automaton state carries over from one segment to the next,
+            // so occurrences spanning a boundary need no overlap
+            for (long offset = 0; offset < length && missing > 0; offset += segmentSize) {
+                int size = (int) Math.min(segmentSize, length - offset);
+                MappedByteBuffer segment =
+                        channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+                for (int i = 0; i < size; i++) {
+                    char c = (char) (segment.get(i) & 0xFF);
+                    state = matcher.advance(state, c, offset + i, first);
+                }
+                missing = 0;
+                for (long index : first) {
+                    if (index < 0) {
+                        missing++;
+                    }
+                }
+            }
+        } finally {
+            file.close();
+        }
+
+        Map<String, Long> result = new HashMap<String, Long>();
+        for (int id = 0; id < first.length; id++) {
+            if (first[id] >= 0) {
+                result.put(matcher.needle(id), first[id]);
+            }
         }
         return result;
     }
+
+    /**
+     * Like findWords(String, AhoCorasick), but splits the haystack into
+     * parallelism shards that are searched in parallel. Shards overlap
+     * by one less than the length of the longest needle, so every occurrence
+     * lies entirely within some shard, and the result is the same as
+     * searching the haystack in one piece.
+     *
+     * @param haystack The string to search into.
+     * @param matcher An automaton built from the needles to search for.
+     * @param parallelism The number of shards. They are searched on at most
+     *                    one thread per available processor. Requires
+     *                    parallelism >= 1.
+     * @return A map of needles that were found in the haystack mapped to the
+     *	       lowest index of the haystack at which the needle was found.
+     */
+    public static Map<String, Integer> findWords(String haystack,
+                                                 AhoCorasick matcher,
+                                                 int parallelism) {
+        int n = haystack.length();
+        int shards = Math.max(1, Math.min(parallelism, n));
+        int shardLength = Math.max(1, (n + shards - 1) / shards);
+        int overlap = Math.max(0, matcher.maxNeedleLength() - 1);
+
+        List<ShardTask> tasks = new ArrayList<ShardTask>();
+        int threads = Math.min(shards, Runtime.getRuntime().availableProcessors());
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        int[] first;
+        try {
+            int start = 0;
+            do {
+                int end = (int) Math.min(n, (long) start + shardLength + overlap);
+                ShardTask task = new ShardTask(haystack, matcher, start, end);
+                pool.execute(task);
+                tasks.add(task);
+                start += shardLength;
+            } while (start < n);
+            // keep the lowest index found for each needle by any shard
+            first = tasks.get(0).join();
+            for (int i = 1; i < tasks.size(); i++) {
+                int[] shardFirst = tasks.get(i).join();
+                for (int id = 0; id < first.length; id++) {
+                    if (shardFirst[id] >= 0 && (first[id] < 0 || shardFirst[id] < first[id])) {
+                        first[id] = shardFirst[id];
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        return matcher.toMap(first);
+    }
+
+    /**
+     * Searches haystack[start..end) for the needles of an automaton.
+     */
+    private static class ShardTask extends RecursiveTask<int[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final String haystack;
+        private final AhoCorasick matcher;
+        private final int start;
+        private final int end;
+
+        ShardTask(String haystack, AhoCorasick matcher, int start, int end) {
+            this.haystack = haystack;
+            this.matcher = matcher;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected int[] compute() {
+            return matcher.firstOccurrences(haystack, start, end);
+        }
+    }
+
+    /**
+     * Returns an automaton for needles, reusing the previous one if the
+     * needles are the same as last time.
+     */
+    private static synchronized AhoCorasick matcherFor(String[] needles) {
+        if (cachedNeedles == null || !Arrays.equals(cachedNeedles, needles)) {
+            cachedMatcher = new AhoCorasick(needles);
+            cachedNeedles = needles.clone();
+        }
+        return cachedMatcher;
+    }
+
+    /**
+     * Returns a matcher for needles with up to maxErrors errors, reusing the
+     * previous one if the needles and maxErrors are the same as last time.
+     */
+    private static synchronized ApproximateMatcher approximateMatcherFor(
+            String[] needles, int maxErrors) {
+        if (cachedApproximateNeedles == null
+                || cachedApproximateMatcher.maxErrors() != maxErrors
+                || !Arrays.equals(cachedApproximateNeedles, needles)) {
+            cachedApproximateMatcher = new ApproximateMatcher(needles, maxErrors);
+            cachedApproximateNeedles = needles.clone();
+        }
+        return cachedApproximateMatcher;
+    }
 }
@@ -2,8 +2,12 @@ package piwords;
 
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Random;
 
 import org.junit.Test;
 
@@ -59,4 +63,59 @@ public class WordFinderTest {
     	needles = new String[] {};
     	assertEquals(expectedOutput, WordFinder.findWords(haystack, needles));
     }
+    
+    @Test
+    public void parallelFindWordsTest() {
+        //test that every shard count gives the same result as one pass
+        Random random = new Random(6005);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            sb.append((char) ('a' + random.nextInt(4)));
+        }
+        String haystack = sb.toString();
+        String[] needles = new String[200];
+        for (int i = 0; i < needles.length; i++) {
+            //take most needles from the haystack so they are found, some near shard edges
+            int start = random.nextInt(haystack.length() - 8);
+            needles[i] = (i % 4 == 0) ? "dcba" + i : haystack.substring(start, start + 1 + random.nextInt(8));
+        }
+        AhoCorasick matcher = new AhoCorasick(needles);
+        Map<String, Integer> expectedOutput = WordFinder.findWords(haystack, needles);
+        for (int parallelism : new int[]{1, 2, 3, 7, 16, 499, 600}) {
+            assertEquals(expectedOutput, WordFinder.findWords(haystack, matcher, parallelism));
+        }
+        
+        //test tiny and empty haystacks
+        matcher = new AhoCorasick(new String[]{"ab", "b", ""});
+        expectedOutput.clear();
+        expectedOutput.put("b", 0);
+        expectedOutput.put("", 0);
+        assertEquals(expectedOutput, WordFinder.findWords("b", matcher, 4));
+        expectedOutput.remove("b");
+        assertEquals(expectedOutput, WordFinder.findWords("", matcher, 4));
+    }
+
+    @Test
+    public void mappedFileTest() throws IOException {
+        String haystack = "abaaaabajavaisfunzz";
+        String[] needles = {"ab", "aaaa", "bb", "java", "fun", "", "javaisfun", "zz"};
+        File haystackFile = File.createTempFile("haystack", ".txt");
+        try {
+            FileOutputStream out = new FileOutputStream(haystackFile);
+            out.write(haystack.getBytes("ISO-8859-1"));
+            out.close();
+            Map<String, Integer> expected = WordFinder.findWords(haystack, needles);
+            AhoCorasick matcher = new AhoCorasick(needles);
+            //test one segment, and segments that cut needles in two
+            for (long segmentSize : new long[]{WordFinder.SEGMENT_SIZE, 7, 1}) {
+                Map<String, Long> found = WordFinder.findWords(haystackFile, matcher, segmentSize);
+                assertEquals(expected.size(), found.size());
+                for (Map.Entry<String, Integer> entry : expected.entrySet()) {
+                    assertEquals(Long.valueOf(entry.getValue()), found.get(entry.getKey()));
+                }
+            }
+        } finally {
+            haystackFile.delete();
+        }
+    }
 }
@@ -0,0 +1,142 @@
+package piwords;
+
+import java.util.Arrays;
+
+/**
+ * WordPostings holds every index at which each needle of an automaton occurs
+ * in a haystack, built in a single pass with AhoCorasick.findAll.
+ * 
+ * The indices of each needle are stored in increasing order as an int array
+ * of differences, the first relative to 0, so there are no boxed values and
+ * needles that were not found cost nothing but a null. Needles are
+ * identified by their AhoCorasick id.
+ */
+public class WordPostings {
+    private final AhoCorasick matcher;
+    // deltas[id][0..count[id]) are the gaps between the indices of needle
+    // id, or deltas[id] is null if it was not found
+    private final int[][] deltas;
+    private final int[] count;
+    // (first index << 32) | id for every needle found that is not a
+    // duplicate of a needle with a lower id, sorted
+    private final long[] byFirstIndex;
+
+    // rep invariant: deltas[id] == null iff count[id] == 0; otherwise
+    //   deltas[id].length == count[id] and every delta but the first is
+    //   >= 1; byFirstIndex has one entry per id with count[id] > 0, other
+    //   than duplicates
+
+    /**
+     * Find every occurrence of the needles of matcher in haystack.
+     * 
+     * @param haystack The string to search into.
+     * @param matcher An automaton built from the needles to search for.
+     */
+    public WordPostings(CharSequence haystack, AhoCorasick matcher) {
+        this.matcher = matcher;
+        int numNeedles = matcher.size();
+        final int[][] deltas = new int[numNeedles][];
+        final int[] count = new int[numNeedles];
+        final int[] last = new int[numNeedles];
+        matcher.findAll(haystack, new AhoCorasick.MatchHandler() {
+            public void match(int id, int index) {
+                int n = count[id];
+                if (deltas[id] == null) {
+                    deltas[id] = new int[4];
+                } else if (n == deltas[id].length) {
+                    deltas[id] = Arrays.copyOf(deltas[id], 2 * n);
+                }
+                deltas[id][n] = index - last[id];
+                last[id] = index;
+                count[id] = n + 1;
+            }
+        });
+
+        boolean[] duplicate = new boolean[numNeedles];
+        int found = 0;
+        for (int id = 0; id < numNeedles; id++) {
+            int next = matcher.nextDuplicate(id);
+            if (next >= 0) {
+                duplicate[next] = true;
+            }
+            if (count[id] > 0) {
+                deltas[id] = Arrays.copyOf(deltas[id], count[id]);
+                if (!duplicate[id]) {
+                    found++;
+                }
+            }
+        }
+        byFirstIndex = new long[found];
+        found = 0;
+        for (int id = 0; id < numNeedles; id++) {
+            if (count[id] > 0 && !duplicate[id]) {
+                byFirstIndex[found++] = ((long) deltas[id][0] << 32) | id;
+            }
+        }
+        Arrays.sort(byFirstIndex);
+        this.deltas = deltas;
+        this.count = count;
+    }
+
+    /**
+     * @return the automaton whose needles were searched for.
+     */
+    public AhoCorasick matcher() {
+        return matcher;
+    }
+
+    /**
+     * @param id Requires 0 <= id < matcher().size().
+     * @return the number of times needle id occurs in the haystack.
+     */
+    public int count(int id) {
+        return count[id];
+    }
+
+    /**
+     * @param id Requires 0 <= id < matcher().size().
+     * @return every index of the haystack at which needle id occurs, in
+     *         increasing order.
+     */
+    public int[] positions(int id) {
+        int[] positions = new int[count[id]];
+        int index = 0;
+        for (int i = 0; i < positions.length; i++) {
+            index += deltas[id][i];
+            positions[i] = index;
+        }
+        return positions;
+    }
+
+    /**
+     * @param id Requires 0 <= id < matcher().size().
+     * @return the lowest index of the haystack at which needle id occurs, or
+     *         -1 if it does not occur.
+     */
+    public int firstPosition(int id) {
+        return (count[id] > 0) ? deltas[id][0] : -1;
+    }
+
+    /**
+     * @return the number of distinct needles that occur at least once.
+     */
+    public int numFound() {
+        return byFirstIndex.length;
+    }
+
+    /**
+     * Returns the ids of the k needles that occur earliest in the haystack,
+     * ordered by their lowest index and then by id. Of needles that are
+     * equal, only the one with the lowest id is included.
+     * 
+     * @param k Requires k >= 0.
+     * @return the first min(k, numFound()) needle ids in that order.
+     */
+    public int[] firstK(int k) {
+        int[] ids = new int[Math.min(k, byFirstIndex.length)];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = (int) byFirstIndex[i];
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,68 @@
+package piwords;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class WordPostingsTest {
+    @Test
+    public void positionsTest() {
+        String haystack = "abaaaaba";
+        String[] needles = {"ab", "aaaa", "bb", "a", "ab"};
+        WordPostings postings = new WordPostings(haystack, new AhoCorasick(needles));
+        assertArrayEquals(new int[]{0, 5}, postings.positions(0));
+        assertArrayEquals(new int[]{2}, postings.positions(1));
+        //test overlapping occurrences
+        assertArrayEquals(new int[]{0, 2, 3, 4, 5, 7}, postings.positions(3));
+        assertEquals(6, postings.count(3));
+        //test a needle that doesn't occur
+        assertArrayEquals(new int[]{}, postings.positions(2));
+        assertEquals(0, postings.count(2));
+        assertEquals(-1, postings.firstPosition(2));
+        //test that duplicates get the same positions
+        assertArrayEquals(postings.positions(0), postings.positions(4));
+        assertEquals(3, postings.numFound());
+        assertArrayEquals(new int[]{0, 3, 1}, postings.firstK(5));
+    }
+
+    @Test
+    public void firstKTest() {
+        String haystack = "xxjavaisfunjava";
+        String[] needles = {"fun", "is", "java", "zz", "av"};
+        WordPostings postings = new WordPostings(haystack, new AhoCorasick(needles));
+        assertArrayEquals(new int[]{2, 4, 1}, postings.firstK(3));
+        //test asking for more words than were found
+        assertArrayEquals(new int[]{2, 4, 1, 0}, postings.firstK(10));
+        assertArrayEquals(new int[]{}, postings.firstK(0));
+    }
+
+    @Test
+    public void sameAsFirstOccurrencesTest() {
+        String haystack = DigitsToStringConverter.convertDigitsToString(
+                BaseTranslator.convertBase(PiGenerator.computePiInHex(500), 16, 3, 500),
+                3, new char[]{'a', 'b', 'c'});
+        String[] needles = {"abc", "aa", "cab", "bbbb", "ccc"};
+        AhoCorasick matcher = new AhoCorasick(needles);
+        WordPostings postings = new WordPostings(haystack, matcher);
+        int[] first = matcher.firstOccurrences(haystack);
+        for (int id = 0; id < needles.length; id++) {
+            assertEquals(first[id], postings.firstPosition(id));
+            //test every position against indexOf
+            int index = -1;
+            for (int position : postings.positions(id)) {
+                index = haystack.indexOf(needles[id], index + 1);
+                assertEquals(index, position);
+            }
+            assertEquals(-1, haystack.indexOf(needles[id], index + 1));
+        }
+    }
+
+    @Test
+    public void emptyNeedleTest() {
+        //test that the empty needle occurs at every index, end included
+        WordPostings postings = new WordPostings("abc", new AhoCorasick(new String[]{"b", ""}));
+        assertArrayEquals(new int[]{0, 1, 2, 3}, postings.positions(1));
+        assertArrayEquals(new int[]{1}, postings.positions(0));
+        assertArrayEquals(new int[]{1, 0}, postings.firstK(2));
+    }
+}
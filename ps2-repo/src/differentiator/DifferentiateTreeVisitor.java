@@ -0,0 +1,39 @@
+package differentiator;
+
+import nodes.*;
+
+/**
+ * Like DifferentiateVisitor, but builds the derivative as a tree instead of
+ * a String. Subtrees of the expression that appear unchanged in the
+ * derivative are shared rather than copied or printed, so every node is
+ * visited once and differentiating takes time linear in the size of the
+ * expression. Use Utils.treeToString to print the result.
+ */
+public class DifferentiateTreeVisitor implements TreeVisitor {
+	
+	public Node visit(VarNode node, String var) {
+		if (node.getToken().getVal().equals(var))
+			return Utils.numberNode("1");
+		else
+			return Utils.numberNode("0");
+	}
+	
+	public Node visit(NumberNode node, String var) {
+		return Utils.numberNode("0");
+	}
+	
+	public Node visit(AddNode node, String var) {
+		Node n1 = node.getLeftChild().accept(this, var);
+		Node n2 = node.getRightChild().accept(this, var);
+		return Utils.smartAdd(n1, n2);
+	}
+	
+	public Node visit(MultNode node, String var) {
+		Node n1 = node.getLeftChild().accept(this, var);
+		Node n3 = node.getRightChild().accept(this, var);
+		Node leftSide = Utils.smartMul(n1, node.getRightChild());
+		Node rightSide = Utils.smartMul(node.getLeftChild(), n3);
+		return Utils.smartAdd(leftSide, rightSide);
+	}
+	
+}
@@ -23,7 +23,7 @@ public class Differentiator {
     	Parser parser = new Parser(lexer);
     	Node n = parser.parse();
     	if (n != null)
-    		return evaluateNode(n, variable);
+    		return Utils.treeToString(differentiateNode(n, variable));
     	else
     		return "";
     }
@@ -32,6 +32,20 @@ public class Differentiator {
     	DifferentiateVisitor visitor = new DifferentiateVisitor();
     	return root.accept(visitor, variable);
     }
+    
+    /**
+     * Differentiates the tree rooted at root with respect to variable, and
+     * returns the derivative as a tree. The derivative shares the subtrees
+     * of root that it contains, so root must not be mutated while the
+     * derivative is in use.
+     * @param root The expression.
+     * @param variable The variable to differentiate by.
+     * @return The expression's derivative.
+     */
+    public static Node differentiateNode(Node root, String variable) {
+    	DifferentiateTreeVisitor visitor = new DifferentiateTreeVisitor();
+    	return root.accept(visitor, variable);
+    }
 
     /**
      * Repeatedly reads expressions from the console, and outputs the results of
@@ -1,5 +1,10 @@
 package differentiator;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import nodes.MultNode;
+import nodes.Node;
+import nodes.VarNode;
+
 import org.junit.Test;
 
 public class DifferentiatorTest {
@@ -17,4 +22,43 @@ public class DifferentiatorTest {
 		assertEquals("(3+(((2*x)+(2*x))+((x*x)+((1*x)*(x+x)))))",
 				d.evaluate("((4 + (3 * x)) + (((2 * x) * x) + ((1 * x) * (x * x))))", "x"));
 	}
+
+	@Test
+	public void treeMatchesStringTest() {
+		//the tree visitor should print exactly what the string visitor returns
+		String[] expressions = {"(3 + 2.4)", "(3 * (x + 2.4))", "((3 + 4) * (x * x))",
+				"((x * 1) + (0 * x))", "((2*x    )+     (   y*x     ))",
+				"((4 + (3 * x)) + (((2 * x) * x) + ((1 * x) * (x * x))))"};
+		for (String expression : expressions) {
+			Node root = new Parser(new Lexer(expression)).parse();
+			assertEquals(Differentiator.evaluateNode(root, "x"),
+					Utils.treeToString(Differentiator.differentiateNode(root, "x")));
+		}
+	}
+	
+	@Test
+	public void sharedSubtreeTest() {
+		//d/dx (x * (y + z)) is (y + z) itself, not a copy
+		Node root = new Parser(new Lexer("(x * (y + z))")).parse();
+		assertSame(root.getRightChild(), Differentiator.differentiateNode(root, "x"));
+	}
+	
+	@Test
+	public void longProductChainTest() {
+		//(((x*2)*2)*...*2) with 2000 factors of 2 differentiates to (((2*2)*2)*...*2)
+		Node root = new VarNode();
+		root.setToken(new Token(Token.Type.WORD, "x"));
+		for (int i = 0; i < 2000; i++) {
+			Node product = new MultNode();
+			product.setLeftChild(root);
+			product.setRightChild(Utils.numberNode("2"));
+			root = product;
+		}
+		StringBuilder expected = new StringBuilder("2");
+		for (int i = 1; i < 2000; i++) {
+			expected.insert(0, "(").append("*2)");
+		}
+		assertEquals(expected.toString(),
+				Utils.treeToString(Differentiator.differentiateNode(root, "x")));
+	}
 }
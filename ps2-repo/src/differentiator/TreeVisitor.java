@@ -0,0 +1,10 @@
+package differentiator;
+
+import nodes.*;
+
+public interface TreeVisitor {
+	public Node visit(VarNode node, String var);
+	public Node visit(NumberNode node, String var);
+	public Node visit(AddNode node, String var);
+	public Node visit(MultNode node, String var);
+}
@@ -1,5 +1,10 @@
 package differentiator;
 
+import nodes.AddNode;
+import nodes.MultNode;
+import nodes.Node;
+import nodes.NumberNode;
+
 public class Utils {
 	public static String smartAdd(String s1, String s2) {
 	    	if (s1.equals("0"))
@@ -21,4 +26,79 @@ public class Utils {
 			return "("+s1+"*"+s2+")";
 		}
     }
+
+    /**
+     * Like smartAdd(String, String), for trees. n1 or n2 is returned itself
+     * rather than copied when the other is 0.
+     */
+    public static Node smartAdd(Node n1, Node n2) {
+		if (isNumber(n1, "0")) {
+			return n2;
+		} else if (isNumber(n2, "0")) {
+			return n1;
+		} else {
+			Node sum = new AddNode();
+			sum.setLeftChild(n1);
+			sum.setRightChild(n2);
+			return sum;
+		}
+    }
+
+    /**
+     * Like smartMul(String, String), for trees. n1 or n2 is returned itself
+     * rather than copied when the other is 1.
+     */
+    public static Node smartMul(Node n1, Node n2) {
+		if (isNumber(n1, "0") || isNumber(n2, "0")) {
+			return numberNode("0");
+		} else if (isNumber(n1, "1")) {
+			return n2;
+		} else if (isNumber(n2, "1")) {
+			return n1;
+		} else {
+			Node product = new MultNode();
+			product.setLeftChild(n1);
+			product.setRightChild(n2);
+			return product;
+		}
+    }
+
+    /**
+     * Makes a leaf for the number written val.
+     */
+    public static Node numberNode(String val) {
+		Node node = new NumberNode();
+		node.setToken(new Token(Token.Type.NUM, val));
+		return node;
+    }
+
+    /**
+     * Prints a tree the same way as node.convertTreeToString(), but into a
+     * single StringBuilder, so the time taken is linear in the length of the
+     * output however deep the tree is.
+     */
+    public static String treeToString(Node node) {
+		StringBuilder sb = new StringBuilder();
+		appendTree(node, sb);
+		return sb.toString();
+    }
+
+    private static void appendTree(Node node, StringBuilder sb) {
+		switch (node.getNodeType()) {
+		case ADD:
+		case MULT:
+			sb.append("(");
+			appendTree(node.getLeftChild(), sb);
+			sb.append(node.getToken().getVal());
+			appendTree(node.getRightChild(), sb);
+			sb.append(")");
+			break;
+		default:
+			sb.append(node.getToken().getVal());
+		}
+    }
+
+    private static boolean isNumber(Node node, String val) {
+		return node.getNodeType() == Node.NodeType.NUM && node.getToken().getVal().equals(val);
+    }
 }
@@ -1,6 +1,7 @@
 package nodes;
 
 import differentiator.Token;
+import differentiator.TreeVisitor;
 import differentiator.Visitor;
 
 public class AddNode implements Node {
@@ -49,6 +50,11 @@ public class AddNode implements Node {
 	public String accept(Visitor visitor, String var) {
 		return visitor.visit(this, var);
 	}
+	
+	@Override
+	public Node accept(TreeVisitor visitor, String var) {
+		return visitor.visit(this, var);
+	}
 
 	@Override
 	public String convertTreeToString() {
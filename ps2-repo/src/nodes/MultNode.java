@@ -1,6 +1,7 @@
 package nodes;
 
 import differentiator.Token;
+import differentiator.TreeVisitor;
 import differentiator.Visitor;
 
 public class MultNode implements Node {
@@ -49,6 +50,11 @@ public class MultNode implements Node {
 		return visitor.visit(this, var);
 	}
 	
+	@Override
+	public Node accept(TreeVisitor visitor, String var) {
+		return visitor.visit(this, var);
+	}
+	
 	@Override
 	public String convertTreeToString() {
 		StringBuilder sb = new StringBuilder();
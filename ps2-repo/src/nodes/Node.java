@@ -1,6 +1,7 @@
 package nodes;
 
 import differentiator.Token;
+import differentiator.TreeVisitor;
 import differentiator.Visitor;
 
 public interface Node {
@@ -14,6 +15,7 @@ public interface Node {
 	
 	public String convertTreeToString();
 	public String accept(Visitor visitor, String var);
+	public Node accept(TreeVisitor visitor, String var);
 	
 	public static enum NodeType {
 		NUM,
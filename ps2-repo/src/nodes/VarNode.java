@@ -1,6 +1,7 @@
 package nodes;
 
 import differentiator.Token;
+import differentiator.TreeVisitor;
 import differentiator.Visitor;
 
 public class VarNode implements Node {
@@ -46,6 +47,11 @@ public class VarNode implements Node {
 		return visitor.visit(this, var);
 	}
 	
+	@Override
+	public Node accept(TreeVisitor visitor, String var) {
+		return visitor.visit(this, var);
+	}
+	
 	@Override
 	public String convertTreeToString() {
 		return mToken.getVal();